@@ -20,6 +20,10 @@ public class Admin extends JFrame {
     private static final Color SIDEBAR_TEXT = Color.WHITE;
     private static final Color CONTENT_BG = new Color(245, 245, 245);
     private static final Color CONTENT_TEXT = new Color(30, 30, 30);
+    private static final int TIMETABLE_THREADS =
+            Integer.getInteger("lms.timetable.threads", Runtime.getRuntime().availableProcessors());
+
+    private final BackgroundTasks tasks = new BackgroundTasks(this::showDatabaseError);
      
 
     public Admin() {
@@ -121,6 +125,8 @@ public class Admin extends JFrame {
         button.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                // Results for the card being left are no longer wanted
+                tasks.cancelAll();
                 cardLayout.show(content, name);
                 if (name.equals("Announcement")) {
                     showAnnouncementForm();
@@ -166,7 +172,57 @@ public class Admin extends JFrame {
         welcomeLabel.setFont(new Font("Arial", Font.PLAIN, 24));
         welcomeLabel.setForeground(CONTENT_TEXT);
         
-        dashboardPanel.add(welcomeLabel);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.insets = new Insets(5, 5, 5, 5);
+        dashboardPanel.add(welcomeLabel, gbc);
+
+        // Bulk account creation for enrollment; existing usernames are left untouched
+        JButton importUsersButton = new JButton("Import Users");
+        JLabel importStatusLabel = new JLabel();
+        importStatusLabel.setForeground(CONTENT_TEXT);
+        importUsersButton.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files", "csv"));
+            if (fileChooser.showOpenDialog(Admin.this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            importUsersButton.setEnabled(false);
+            importStatusLabel.setText("Importing...");
+            UserImportWorker worker = new UserImportWorker(fileChooser.getSelectedFile().toPath(),
+                progress -> importStatusLabel.setText(progress.toString()),
+                progress -> {
+                    importUsersButton.setEnabled(true);
+                    importStatusLabel.setText(progress.toString());
+                    showUserImportResult(progress);
+                });
+            worker.execute();
+        });
+        gbc.gridy++;
+        dashboardPanel.add(importUsersButton, gbc);
+        gbc.gridy++;
+        dashboardPanel.add(importStatusLabel, gbc);
+
+        JButton slowQueriesButton = new JButton("Slow Queries");
+        slowQueriesButton.addActionListener(e -> showSlowQueries());
+        gbc.gridy++;
+        dashboardPanel.add(slowQueriesButton, gbc);
+
+        // Size of the course file store and what sharing identical files saves
+        JButton storeButton = new JButton("Resource Store");
+        storeButton.addActionListener(e -> {
+            tasks.load("Dashboard:store", () -> {
+                ResourceStore.Stats stats = Database.getResourceStoreStats();
+                if (stats == null) {
+                    throw new SQLException("Could not read resource store statistics");
+                }
+                return stats;
+            }, this::showResourceStoreStats);
+        });
+        gbc.gridy++;
+        dashboardPanel.add(storeButton, gbc);
+
         dashboardPanel.revalidate();
         dashboardPanel.repaint();
     }
@@ -209,27 +265,33 @@ public class Admin extends JFrame {
     }
 
     
-    public static DefaultTableModel buildTableModel(ResultSet rs) throws SQLException {
-        ResultSetMetaData metaData = rs.getMetaData();
-        Vector<String> columnNames = new Vector<>();
-        int columnCount = metaData.getColumnCount();
-        for (int column = 1; column <= columnCount; column++) {
-            columnNames.add(metaData.getColumnName(column));
-        }
+    // Counts the view's rows in the background, then shows them through a LazyTableModel.
+    // Reads for the same table share a group, so a newer refresh or search replaces an older one.
+    private void setLazyModel(JTable table, TableView view) {
+        String group = view.getTable();
+        table.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        tasks.load(group, () -> Database.countRows(view), count -> {
+            table.setModel(new LazyTableModel(view, count, tasks, group));
+            table.setCursor(Cursor.getDefaultCursor());
+        });
+    }
 
-        Vector<Vector<Object>> data = new Vector<>();
-        while (rs.next()) {
-            Vector<Object> vector = new Vector<>();
-            for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
-                vector.add(rs.getObject(columnIndex));
-            }
-            data.add(vector);
+    // The selected row, or -1 if nothing is selected or the row's block has not loaded yet;
+    // the cells of such a row are all null, so there is no id to act on
+    private static int loadedSelection(JTable table) {
+        int row = table.getSelectedRow();
+        if (row == -1) {
+            return -1;
         }
+        TableModel model = table.getModel();
+        return !(model instanceof LazyTableModel)
+            || ((LazyTableModel) model).isLoaded(table.convertRowIndexToModel(row)) ? row : -1;
+    }
 
-        return new DefaultTableModel(data, columnNames);
+    private void showDatabaseError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
     }
 
-    
     private JPanel createCourseUploadForm() {
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBackground(CONTENT_BG);
@@ -237,7 +299,6 @@ public class Admin extends JFrame {
         // Create the table
         JTable courseTable = new JTable();
         courseTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        courseTable.setAutoCreateRowSorter(true);
         JScrollPane scrollPane = new JScrollPane(courseTable);
         refreshCourseTable(courseTable);
         
@@ -290,6 +351,9 @@ public class Admin extends JFrame {
         JButton submitButton = new JButton("Submit");
         JButton updateButton = new JButton("Update");
         JButton deleteButton = new JButton("Delete");
+        JButton queueButton = new JButton("Add to Batch");
+        JButton submitBatchButton = new JButton("Submit Batch (0)");
+        ArrayList<CourseRow> pendingCourses = new ArrayList<>();
     
         // Style the buttons
         submitButton.setBackground(Color.LIGHT_GRAY);
@@ -370,6 +434,8 @@ public class Admin extends JFrame {
         gbc.gridy++;
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
+        gbc.gridy++;
+        formPanel.add(createBatchPanel(queueButton, submitBatchButton), gbc);
     
         // Create a panel for the table and search field
         JPanel tablePanel = new JPanel(new BorderLayout());
@@ -408,17 +474,56 @@ public class Admin extends JFrame {
             String filePath = filePathField.getText();
     
             if (course != null && chapter != null && lesson != null && !filePath.isEmpty()) {
-                Database.addCourse(course, chapter, lesson, resourceType, filePath);
-                JOptionPane.showMessageDialog(Admin.this, "Course added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshCourseTable(courseTable);
+                tasks.write(() -> {
+                    if (!Database.addCourse(course, chapter, lesson, resourceType, filePath)) {
+                        throw new SQLException("Could not add course; check that the resource file exists");
+                    }
+                    return null;
+                }, ignored -> {
+                    JOptionPane.showMessageDialog(Admin.this, "Course added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    refreshCourseTable(courseTable);
+                    clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
+                });
+            } else {
+                JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    
+        queueButton.addActionListener(e -> {
+            String course = (String) courseComboBox.getSelectedItem();
+            String chapter = (String) chapterComboBox.getSelectedItem();
+            String lesson = (String) lessonComboBox.getSelectedItem();
+            String resourceType = (String) resourceTypeComboBox.getSelectedItem();
+            String filePath = filePathField.getText();
+    
+            if (course != null && chapter != null && lesson != null && !filePath.isEmpty()) {
+                pendingCourses.add(new CourseRow(0, course, chapter, lesson, resourceType, filePath));
+                submitBatchButton.setText("Submit Batch (" + pendingCourses.size() + ")");
                 clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
             }
         });
     
+        submitBatchButton.addActionListener(e -> {
+            if (pendingCourses.isEmpty()) {
+                JOptionPane.showMessageDialog(Admin.this, "There are no queued courses to submit.", "Empty Batch", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ArrayList<CourseRow> batch = new ArrayList<>(pendingCourses);
+            submitBatchButton.setEnabled(false);
+            tasks.write(() -> Database.addCourses(batch), result -> {
+                submitBatchButton.setEnabled(true);
+                if (showBatchResult(result)) {
+                    pendingCourses.removeAll(batch);
+                    refreshCourseTable(courseTable);
+                }
+                submitBatchButton.setText("Submit Batch (" + pendingCourses.size() + ")");
+            });
+        });
+    
         updateButton.addActionListener(e -> {
-            int selectedRow = courseTable.getSelectedRow();
+            int selectedRow = loadedSelection(courseTable);
             if (selectedRow != -1) {
                 int id = (int) courseTable.getValueAt(selectedRow, 0);
                 String course = (String) courseComboBox.getSelectedItem();
@@ -428,10 +533,16 @@ public class Admin extends JFrame {
                 String filePath = filePathField.getText();
     
                 if (course != null && chapter != null && lesson != null && !filePath.isEmpty()) {
-                    Database.updateCourse(id, course, chapter, lesson, resourceType, filePath);
-                    JOptionPane.showMessageDialog(Admin.this, "Course updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshCourseTable(courseTable);
-                    clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
+                    tasks.write(() -> {
+                        if (!Database.updateCourse(id, course, chapter, lesson, resourceType, filePath)) {
+                            throw new SQLException("Could not update course");
+                        }
+                        return null;
+                    }, ignored -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Course updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshCourseTable(courseTable);
+                        clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
+                    });
                 } else {
                     JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
                 }
@@ -441,15 +552,16 @@ public class Admin extends JFrame {
         });
     
         deleteButton.addActionListener(e -> {
-            int selectedRow = courseTable.getSelectedRow();
+            int selectedRow = loadedSelection(courseTable);
             if (selectedRow != -1) {
                 int id = (int) courseTable.getValueAt(selectedRow, 0);
                 int confirm = JOptionPane.showConfirmDialog(Admin.this, "Are you sure you want to delete this course?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    Database.deleteCourse(id);
-                    JOptionPane.showMessageDialog(Admin.this, "Course deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshCourseTable(courseTable);
-                    clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
+                    tasks.write(() -> Database.deleteCourse(id), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Course deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshCourseTable(courseTable);
+                        clearFields(courseComboBox, chapterComboBox, lessonComboBox, resourceTypeComboBox, filePathField);
+                    });
                 }
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please select a course to delete.", "No Selection", JOptionPane.WARNING_MESSAGE);
@@ -458,7 +570,7 @@ public class Admin extends JFrame {
     
         courseTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                int selectedRow = courseTable.getSelectedRow();
+                int selectedRow = loadedSelection(courseTable);
                 if (selectedRow != -1) {
                     courseComboBox.setSelectedItem(courseTable.getValueAt(selectedRow, 1));
                     chapterComboBox.setSelectedItem(courseTable.getValueAt(selectedRow, 2));
@@ -470,16 +582,40 @@ public class Admin extends JFrame {
         });
     
         searchButton.addActionListener(e -> {
-            String searchTerm = searchField.getText().toLowerCase();
-            TableRowSorter<TableModel> sorter = new TableRowSorter<>(courseTable.getModel());
-            courseTable.setRowSorter(sorter);
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchTerm));
+            setLazyModel(courseTable, TableView.COURSES.withSearch(searchField.getText()));
         });
+        SearchDebouncer.attach(searchField, text -> setLazyModel(courseTable, TableView.COURSES.withSearch(text)));
 
     
         return mainPanel;
     }
     
+    private JPanel createBatchPanel(JButton queueButton, JButton submitBatchButton) {
+        JPanel batchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        batchPanel.setBackground(CONTENT_BG);
+        queueButton.setBackground(Color.LIGHT_GRAY);
+        submitBatchButton.setBackground(Color.LIGHT_GRAY);
+        queueButton.setForeground(Color.BLACK);
+        submitBatchButton.setForeground(Color.BLACK);
+        batchPanel.add(queueButton);
+        batchPanel.add(submitBatchButton);
+        return batchPanel;
+    }
+
+    // Reports the outcome of a batch submit and returns true if it was committed
+    private boolean showBatchResult(BatchResult result) {
+        if (result.isCommitted()) {
+            JOptionPane.showMessageDialog(this, result.getWritten() + " rows added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+            return true;
+        }
+        StringBuilder message = new StringBuilder("Nothing was saved. Please fix the following and submit again:\n");
+        for (BatchResult.RowError error : result.getErrors()) {
+            message.append("\n").append(error);
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Batch Failed", JOptionPane.ERROR_MESSAGE);
+        return false;
+    }
+
     private void clearFields(JComboBox<String> courseComboBox, JComboBox<String> chapterComboBox, JComboBox<String> lessonComboBox, JComboBox<String> resourceTypeComboBox, JTextField filePathField) {
         courseComboBox.setSelectedIndex(0);
         chapterComboBox.setSelectedIndex(0);
@@ -489,12 +625,7 @@ public class Admin extends JFrame {
     }
 
     private void refreshCourseTable(JTable courseTable) {
-        ResultSet rs = Database.getAllCourses();
-        try {
-            courseTable.setModel(buildTableModel(rs));
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        setLazyModel(courseTable, TableView.COURSES);
     }
 
 
@@ -505,7 +636,6 @@ public class Admin extends JFrame {
         // Create the table
         JTable scheduleTable = new JTable();
         scheduleTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        scheduleTable.setAutoCreateRowSorter(true);
         JScrollPane scrollPane = new JScrollPane(scheduleTable);
         refreshScheduleTable(scheduleTable);
     
@@ -519,6 +649,8 @@ public class Admin extends JFrame {
     
         // Create the "Add Schedule" button
         JButton addScheduleButton = new JButton("Add Schedule");
+        JButton validateButton = new JButton("Validate Timetable");
+        JButton generateButton = new JButton("Generate Timetable");
     
         // Create the search field and button
         JTextField searchField = new JTextField(15);
@@ -534,6 +666,8 @@ public class Admin extends JFrame {
     
         // Add components to the buttons panel
         buttonsPanel.add(addScheduleButton);
+        buttonsPanel.add(validateButton);
+        buttonsPanel.add(generateButton);
     
         // Add the buttons panel to the top panel
         topPanel.add(buttonsPanel, BorderLayout.WEST);
@@ -567,6 +701,9 @@ public class Admin extends JFrame {
         JButton submitButton = new JButton("Submit");
         JButton updateButton = new JButton("Update");
         JButton deleteButton = new JButton("Delete");
+        JButton queueButton = new JButton("Add to Batch");
+        JButton submitBatchButton = new JButton("Submit Batch (0)");
+        ArrayList<ScheduleRow> pendingSchedules = new ArrayList<>();
     
         // Style the buttons
         submitButton.setBackground(Color.LIGHT_GRAY);
@@ -632,6 +769,8 @@ public class Admin extends JFrame {
         gbc.gridy++;
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
+        gbc.gridy++;
+        formPanel.add(createBatchPanel(queueButton, submitBatchButton), gbc);
     
         // Create a panel for the table and search field
         JPanel tablePanel = new JPanel(new BorderLayout());
@@ -659,6 +798,18 @@ public class Admin extends JFrame {
             mainPanel.revalidate();
             mainPanel.repaint();
         });
+
+        validateButton.addActionListener(e -> {
+            tasks.load("Schedule:validate", () -> {
+                ScheduleConflicts.Report report = Database.validateTimetable();
+                if (report == null) {
+                    throw new SQLException("Could not validate the timetable");
+                }
+                return report;
+            }, this::showTimetableReport);
+        });
+
+        generateButton.addActionListener(e -> showTimetableGenerator(scheduleTable));
     
         submitButton.addActionListener(e -> {
             String course = (String) courseComboBox.getSelectedItem();
@@ -668,17 +819,65 @@ public class Admin extends JFrame {
             String room = (String) roomComboBox.getSelectedItem();
     
             if (course != null && day != null && !startTime.isEmpty() && !endTime.isEmpty() && room != null) {
-                Database.addSchedule(course, day, startTime, endTime, room);
-                JOptionPane.showMessageDialog(Admin.this, "Schedule added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshScheduleTable(scheduleTable);
+                if (!checkScheduleTimes(startTime, endTime)) {
+                    return;
+                }
+                tasks.write(() -> {
+                    java.util.List<ScheduleRow> conflicts = Database.addSchedule(course, day, startTime, endTime, room);
+                    if (conflicts == null) {
+                        throw new SQLException("Could not add schedule");
+                    }
+                    return conflicts;
+                }, conflicts -> {
+                    if (!showScheduleConflicts(conflicts)) {
+                        return;
+                    }
+                    if (conflicts.isEmpty()) {
+                        JOptionPane.showMessageDialog(Admin.this, "Schedule added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                    refreshScheduleTable(scheduleTable);
+                    clearScheduleFields(courseComboBox, dayComboBox, startTimeSpinner, endTimeSpinner, roomComboBox);
+                });
+            } else {
+                JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    
+        queueButton.addActionListener(e -> {
+            String course = (String) courseComboBox.getSelectedItem();
+            String day = (String) dayComboBox.getSelectedItem();
+            String startTime = new SimpleDateFormat("HH:mm").format((Date) startTimeSpinner.getValue());
+            String endTime = new SimpleDateFormat("HH:mm").format((Date) endTimeSpinner.getValue());
+            String room = (String) roomComboBox.getSelectedItem();
+    
+            if (course != null && day != null && !startTime.isEmpty() && !endTime.isEmpty() && room != null) {
+                pendingSchedules.add(new ScheduleRow(0, course, day, startTime, endTime, room));
+                submitBatchButton.setText("Submit Batch (" + pendingSchedules.size() + ")");
                 clearScheduleFields(courseComboBox, dayComboBox, startTimeSpinner, endTimeSpinner, roomComboBox);
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
             }
         });
     
+        submitBatchButton.addActionListener(e -> {
+            if (pendingSchedules.isEmpty()) {
+                JOptionPane.showMessageDialog(Admin.this, "There are no queued schedules to submit.", "Empty Batch", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ArrayList<ScheduleRow> batch = new ArrayList<>(pendingSchedules);
+            submitBatchButton.setEnabled(false);
+            tasks.write(() -> Database.addSchedules(batch), result -> {
+                submitBatchButton.setEnabled(true);
+                if (showBatchResult(result)) {
+                    pendingSchedules.removeAll(batch);
+                    refreshScheduleTable(scheduleTable);
+                }
+                submitBatchButton.setText("Submit Batch (" + pendingSchedules.size() + ")");
+            });
+        });
+    
         updateButton.addActionListener(e -> {
-            int selectedRow = scheduleTable.getSelectedRow();
+            int selectedRow = loadedSelection(scheduleTable);
             if (selectedRow != -1) {
                 int id = (int) scheduleTable.getValueAt(selectedRow, 0);
                 String course = (String) courseComboBox.getSelectedItem();
@@ -688,10 +887,25 @@ public class Admin extends JFrame {
                 String room = (String) roomComboBox.getSelectedItem();
     
                 if (course != null && day != null && !startTime.isEmpty() && !endTime.isEmpty() && room != null) {
-                    Database.updateSchedule(id, course, day, startTime, endTime, room);
-                    JOptionPane.showMessageDialog(Admin.this, "Schedule updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshScheduleTable(scheduleTable);
-                    clearScheduleFields(courseComboBox, dayComboBox, startTimeSpinner, endTimeSpinner, roomComboBox);
+                    if (!checkScheduleTimes(startTime, endTime)) {
+                        return;
+                    }
+                    tasks.write(() -> {
+                        java.util.List<ScheduleRow> conflicts = Database.updateSchedule(id, course, day, startTime, endTime, room);
+                        if (conflicts == null) {
+                            throw new SQLException("Could not update schedule");
+                        }
+                        return conflicts;
+                    }, conflicts -> {
+                        if (!showScheduleConflicts(conflicts)) {
+                            return;
+                        }
+                        if (conflicts.isEmpty()) {
+                            JOptionPane.showMessageDialog(Admin.this, "Schedule updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        }
+                        refreshScheduleTable(scheduleTable);
+                        clearScheduleFields(courseComboBox, dayComboBox, startTimeSpinner, endTimeSpinner, roomComboBox);
+                    });
                 } else {
                     JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
                 }
@@ -701,14 +915,15 @@ public class Admin extends JFrame {
         });
     
         deleteButton.addActionListener(e -> {
-            int selectedRow = scheduleTable.getSelectedRow();
+            int selectedRow = loadedSelection(scheduleTable);
             if (selectedRow != -1) {
                 int id = (int) scheduleTable.getValueAt(selectedRow, 0);
                 int confirm = JOptionPane.showConfirmDialog(Admin.this, "Are you sure you want to delete this schedule?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    Database.deleteSchedule(id);
-                    JOptionPane.showMessageDialog(Admin.this, "Schedule deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshScheduleTable(scheduleTable);
+                    tasks.write(() -> Database.deleteSchedule(id), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Schedule deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshScheduleTable(scheduleTable);
+                    });
                 }
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please select a schedule to delete.", "No Selection", JOptionPane.WARNING_MESSAGE);
@@ -716,15 +931,184 @@ public class Admin extends JFrame {
         });
     
         searchButton.addActionListener(e -> {
-            String searchTerm = searchField.getText().toLowerCase();
-            TableRowSorter<TableModel> sorter = new TableRowSorter<>(scheduleTable.getModel());
-            scheduleTable.setRowSorter(sorter);
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchTerm));
+            setLazyModel(scheduleTable, TableView.SCHEDULE.withSearch(searchField.getText()));
         });
+        SearchDebouncer.attach(searchField, text -> setLazyModel(scheduleTable, TableView.SCHEDULE.withSearch(text)));
     
         return mainPanel;
     }
   
+    private boolean checkScheduleTimes(String startTime, String endTime) {
+        if (ScheduleConflicts.minutes(endTime) <= ScheduleConflicts.minutes(startTime)) {
+            JOptionPane.showMessageDialog(this, "End time must be after start time.", "Invalid Time", JOptionPane.WARNING_MESSAGE);
+            return false;
+        }
+        return true;
+    }
+
+    // Tells the user which bookings a schedule write overlapped; true if it was saved anyway
+    private boolean showScheduleConflicts(java.util.List<ScheduleRow> conflicts) {
+        if (conflicts.isEmpty()) {
+            return true;
+        }
+        boolean saved = !Database.rejectsScheduleConflicts();
+        StringBuilder message = new StringBuilder(saved
+                ? "Schedule saved, but the room is already booked at that time:\n"
+                : "Nothing was saved. The room is already booked at that time:\n");
+        for (ScheduleRow conflict : conflicts) {
+            message.append("\n").append(ScheduleConflicts.describe(conflict));
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Schedule Conflict",
+            saved ? JOptionPane.WARNING_MESSAGE : JOptionPane.ERROR_MESSAGE);
+        return saved;
+    }
+
+    private void showTimetableReport(ScheduleConflicts.Report report) {
+        if (report.isClean()) {
+            JOptionPane.showMessageDialog(this, "No conflicts found in " + report.checked + " bookings.",
+                "Timetable Valid", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JTextArea reportArea = new JTextArea(report.toString());
+        reportArea.setEditable(false);
+        JScrollPane reportScroll = new JScrollPane(reportArea);
+        reportScroll.setPreferredSize(new Dimension(700, 300));
+        JOptionPane.showMessageDialog(this, reportScroll, "Timetable Conflicts", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void showTimetableGenerator(JTable scheduleTable) {
+        JTextArea coursesArea = new JTextArea("Maths, 4\nPhysics, 3\nChemistry, 3\nBiology, 2", 6, 30);
+        JTextField roomsField = new JTextField("201, 202, 203, 204, 205");
+        JTextField daysField = new JTextField("Monday, Tuesday, Wednesday, Thursday, Friday");
+        JTextField dayStartField = new JTextField("08:00");
+        JTextField dayEndField = new JTextField("17:00");
+        JTextField slotField = new JTextField("60");
+        JTextArea blockedArea = new JTextArea("Wednesday 12:00-13:00", 4, 30);
+        JTextField budgetField = new JTextField("5");
+        JCheckBox replaceBox = new JCheckBox("Replace the existing timetable (otherwise keep it and fill around it)", true);
+
+        JPanel form = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(3, 3, 3, 3);
+        Object[][] rows = {
+            {"Courses (name, weekly hours per line):", new JScrollPane(coursesArea)},
+            {"Rooms:", roomsField},
+            {"Days:", daysField},
+            {"Day starts:", dayStartField},
+            {"Day ends:", dayEndField},
+            {"Slot length (minutes):", slotField},
+            {"Blocked slots (day HH:mm-HH:mm [room] per line):", new JScrollPane(blockedArea)},
+            {"Time budget (seconds):", budgetField}
+        };
+        for (Object[] row : rows) {
+            form.add(new JLabel((String) row[0]), gbc);
+            gbc.gridy++;
+            form.add((Component) row[1], gbc);
+            gbc.gridy++;
+        }
+        form.add(replaceBox, gbc);
+
+        int choice = JOptionPane.showConfirmDialog(this, form, "Generate Timetable", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        TimetableGenerator.Problem problem;
+        long budgetMillis;
+        try {
+            java.util.List<TimetableGenerator.Requirement> courses = new ArrayList<>();
+            for (String line : coursesArea.getText().split("\n")) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected \"name, hours\" but got \"" + line.trim() + "\"");
+                }
+                courses.add(new TimetableGenerator.Requirement(parts[0], Integer.parseInt(parts[1].trim())));
+            }
+            problem = new TimetableGenerator.Problem(courses, splitList(roomsField.getText()), splitList(daysField.getText()),
+                dayStartField.getText().trim(), dayEndField.getText().trim(), Integer.parseInt(slotField.getText().trim()));
+            for (String line : blockedArea.getText().split("\n")) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.trim().split("\\s+");
+                String[] times = parts.length < 2 ? new String[0] : parts[1].split("-");
+                if (parts.length > 3 || times.length != 2) {
+                    throw new IllegalArgumentException("Expected \"day HH:mm-HH:mm [room]\" but got \"" + line.trim() + "\"");
+                }
+                problem.block(parts[0], times[0], times[1], parts.length == 3 ? parts[2] : null);
+            }
+            budgetMillis = Math.round(Double.parseDouble(budgetField.getText().trim()) * 1000);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Invalid input: " + e.getMessage(), "Generate Timetable", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        boolean replace = replaceBox.isSelected();
+        tasks.load("Schedule:generate", () -> {
+            if (!replace) {
+                java.util.List<ScheduleRow> existing = new ArrayList<>();
+                if (!Database.forEachSchedule(existing::add)) {
+                    throw new SQLException("Could not read the current timetable");
+                }
+                for (ScheduleRow booking : existing) {
+                    problem.keep(booking);
+                }
+            }
+            return new TimetableGenerator(TIMETABLE_THREADS).solve(problem, budgetMillis, System.nanoTime());
+        }, result -> confirmGeneratedTimetable(result, replace, scheduleTable));
+    }
+
+    private static java.util.List<String> splitList(String text) {
+        java.util.List<String> values = new ArrayList<>();
+        for (String value : text.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    private void confirmGeneratedTimetable(TimetableGenerator.Result result, boolean replace, JTable scheduleTable) {
+        DefaultTableModel model = new DefaultTableModel(new String[]{"Course", "Day", "Start Time", "End Time", "Room"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (ScheduleRow row : result.rows) {
+            model.addRow(new Object[]{row.getCourse(), row.getDay(), row.getStartTime(), row.getEndTime(), row.getRoom()});
+        }
+        JTable previewTable = new JTable(model);
+        previewTable.setAutoCreateRowSorter(true);
+        JScrollPane previewScroll = new JScrollPane(previewTable);
+        previewScroll.setPreferredSize(new Dimension(700, 300));
+
+        StringBuilder summary = new StringBuilder(result.toString());
+        if (!result.isComplete()) {
+            summary.append("\nNot enough free slots for: ").append(result.unplaced);
+        }
+        summary.append(replace ? "\n\nReplace the whole timetable with these sessions?" : "\n\nAdd these sessions to the timetable?");
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new JLabel("<html>" + summary.toString().replace("\n", "<br>") + "</html>"), BorderLayout.NORTH);
+        panel.add(previewScroll, BorderLayout.CENTER);
+        int choice = JOptionPane.showConfirmDialog(this, panel, "Generated Timetable", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.YES_OPTION || result.rows.isEmpty()) {
+            return;
+        }
+        java.util.List<ScheduleRow> sessions = result.rows;
+        tasks.write(() -> replace ? Database.replaceSchedules(sessions) : Database.addSchedules(sessions), written -> {
+            if (showBatchResult(written)) {
+                refreshScheduleTable(scheduleTable);
+            }
+        });
+    }
+
     private void clearScheduleFields(JComboBox<String> courseComboBox, JComboBox<String> dayComboBox, JSpinner startTimeSpinner, JSpinner endTimeSpinner, JComboBox<String> roomComboBox) {
         courseComboBox.setSelectedIndex(0);
         dayComboBox.setSelectedIndex(0);
@@ -734,12 +1118,7 @@ public class Admin extends JFrame {
     }    
 
     private void refreshScheduleTable(JTable scheduleTable) {
-        ResultSet rs = Database.getAllSchedules();
-        try {
-            scheduleTable.setModel(buildTableModel(rs));
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        setLazyModel(scheduleTable, TableView.SCHEDULE);
     }
    
 
@@ -750,7 +1129,6 @@ public class Admin extends JFrame {
         // Create the table
         JTable gradeTable = new JTable();
         gradeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        gradeTable.setAutoCreateRowSorter(true);
         JScrollPane scrollPane = new JScrollPane(gradeTable);
         refreshGradeTable(gradeTable);
     
@@ -777,8 +1155,30 @@ public class Admin extends JFrame {
         addGradeButton.setPreferredSize(new Dimension(110, 30));
         searchButton.setPreferredSize(new Dimension(searchButton.getPreferredSize().width, buttonHeight));
     
+        // Create the CSV import button and its status line
+        JButton importButton = new JButton("Import CSV");
+        importButton.setPreferredSize(new Dimension(110, 30));
+        JLabel importStatusLabel = new JLabel();
+        importStatusLabel.setForeground(CONTENT_TEXT);
+    
+        // Per-course distribution, read from the incrementally maintained statistics
+        JButton statsButton = new JButton("Course Stats");
+        statsButton.setPreferredSize(new Dimension(120, 30));
+        statsButton.addActionListener(e -> {
+            tasks.load("Gradebook:stats", () -> {
+                java.util.List<GradeStats> stats = Database.getAllGradeStats();
+                if (stats == null) {
+                    throw new SQLException("Could not load grade statistics");
+                }
+                return stats;
+            }, this::showGradeStats);
+        });
+
         // Add components to the buttons panel
         buttonsPanel.add(addGradeButton);
+        buttonsPanel.add(importButton);
+        buttonsPanel.add(statsButton);
+        buttonsPanel.add(importStatusLabel);
     
         // Add the buttons panel to the top panel
         topPanel.add(buttonsPanel, BorderLayout.WEST);
@@ -795,6 +1195,9 @@ public class Admin extends JFrame {
         JButton submitButton = new JButton("Submit");
         JButton updateButton = new JButton("Update");
         JButton deleteButton = new JButton("Delete");
+        JButton queueButton = new JButton("Add to Batch");
+        JButton submitBatchButton = new JButton("Submit Batch (0)");
+        ArrayList<GradeRow> pendingGrades = new ArrayList<>();
     
         // Style the buttons
         submitButton.setBackground(Color.LIGHT_GRAY);
@@ -843,6 +1246,8 @@ public class Admin extends JFrame {
         gbc.gridy++;
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
+        gbc.gridy++;
+        formPanel.add(createBatchPanel(queueButton, submitBatchButton), gbc);
     
         // Create a panel for the table and search field
         JPanel tablePanel = new JPanel(new BorderLayout());
@@ -871,23 +1276,74 @@ public class Admin extends JFrame {
             mainPanel.repaint();
         });
     
+        importButton.addActionListener(e -> {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files", "csv"));
+            if (fileChooser.showOpenDialog(Admin.this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            importButton.setEnabled(false);
+            importStatusLabel.setText("Importing...");
+            GradeImportWorker worker = new GradeImportWorker(fileChooser.getSelectedFile().toPath(),
+                progress -> importStatusLabel.setText(progress.toString()),
+                progress -> {
+                    importButton.setEnabled(true);
+                    importStatusLabel.setText(progress.toString());
+                    refreshGradeTable(gradeTable);
+                    showImportResult(progress);
+                });
+            worker.execute();
+        });
+    
         submitButton.addActionListener(e -> {
             String studentId = studentIdField.getText();
             String courseId = courseIdField.getText();
             String grade = gradeField.getText();
     
             if (!studentId.isEmpty() && !courseId.isEmpty() && !grade.isEmpty()) {
-                Database.addGrade(studentId, courseId, grade);
-                JOptionPane.showMessageDialog(Admin.this, "Grade added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshGradeTable(gradeTable);
+                tasks.write(() -> Database.addGrade(studentId, courseId, grade), () -> {
+                    JOptionPane.showMessageDialog(Admin.this, "Grade added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    refreshGradeTable(gradeTable);
+                    clearGradeFields(studentIdField, courseIdField, gradeField);
+                });
+            } else {
+                JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    
+        queueButton.addActionListener(e -> {
+            String studentId = studentIdField.getText();
+            String courseId = courseIdField.getText();
+            String grade = gradeField.getText();
+    
+            if (!studentId.isEmpty() && !courseId.isEmpty() && !grade.isEmpty()) {
+                pendingGrades.add(new GradeRow(0, studentId, courseId, grade));
+                submitBatchButton.setText("Submit Batch (" + pendingGrades.size() + ")");
                 clearGradeFields(studentIdField, courseIdField, gradeField);
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
             }
         });
     
+        submitBatchButton.addActionListener(e -> {
+            if (pendingGrades.isEmpty()) {
+                JOptionPane.showMessageDialog(Admin.this, "There are no queued grades to submit.", "Empty Batch", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ArrayList<GradeRow> batch = new ArrayList<>(pendingGrades);
+            submitBatchButton.setEnabled(false);
+            tasks.write(() -> Database.addGrades(batch), result -> {
+                submitBatchButton.setEnabled(true);
+                if (showBatchResult(result)) {
+                    pendingGrades.removeAll(batch);
+                    refreshGradeTable(gradeTable);
+                }
+                submitBatchButton.setText("Submit Batch (" + pendingGrades.size() + ")");
+            });
+        });
+    
         updateButton.addActionListener(e -> {
-            int selectedRow = gradeTable.getSelectedRow();
+            int selectedRow = loadedSelection(gradeTable);
             if (selectedRow != -1) {
                 int id = (int) gradeTable.getValueAt(selectedRow, 0);
                 String studentId = studentIdField.getText();
@@ -895,10 +1351,11 @@ public class Admin extends JFrame {
                 String grade = gradeField.getText();
     
                 if (!studentId.isEmpty() && !courseId.isEmpty() && !grade.isEmpty()) {
-                    Database.updateGrade(id, studentId, courseId, grade);
-                    JOptionPane.showMessageDialog(Admin.this, "Grade updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshGradeTable(gradeTable);
-                    clearGradeFields(studentIdField, courseIdField, gradeField);
+                    tasks.write(() -> Database.updateGrade(id, studentId, courseId, grade), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Grade updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshGradeTable(gradeTable);
+                        clearGradeFields(studentIdField, courseIdField, gradeField);
+                    });
                 } else {
                     JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
                 }
@@ -908,15 +1365,16 @@ public class Admin extends JFrame {
         });
     
         deleteButton.addActionListener(e -> {
-            int selectedRow = gradeTable.getSelectedRow();
+            int selectedRow = loadedSelection(gradeTable);
             if (selectedRow != -1) {
                 int id = (int) gradeTable.getValueAt(selectedRow, 0);
                 int confirm = JOptionPane.showConfirmDialog(Admin.this, "Are you sure you want to delete this grade?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    Database.deleteGrade(id);
-                    JOptionPane.showMessageDialog(Admin.this, "Grade deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshGradeTable(gradeTable);
-                    clearGradeFields(studentIdField, courseIdField, gradeField);
+                    tasks.write(() -> Database.deleteGrade(id), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Grade deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshGradeTable(gradeTable);
+                        clearGradeFields(studentIdField, courseIdField, gradeField);
+                    });
                 }
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please select a grade to delete.", "No Selection", JOptionPane.WARNING_MESSAGE);
@@ -925,7 +1383,7 @@ public class Admin extends JFrame {
     
         gradeTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                int selectedRow = gradeTable.getSelectedRow();
+                int selectedRow = loadedSelection(gradeTable);
                 if (selectedRow != -1) {
                     studentIdField.setText(gradeTable.getValueAt(selectedRow, 1).toString());
                     courseIdField.setText(gradeTable.getValueAt(selectedRow, 2).toString());
@@ -935,15 +1393,142 @@ public class Admin extends JFrame {
         });
     
         searchButton.addActionListener(e -> {
-            String searchTerm = searchField.getText().toLowerCase();
-            TableRowSorter<TableModel> sorter = new TableRowSorter<>(gradeTable.getModel());
-            gradeTable.setRowSorter(sorter);
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchTerm));
+            setLazyModel(gradeTable, TableView.GRADES.withSearch(searchField.getText()));
         });
+        SearchDebouncer.attach(searchField, text -> setLazyModel(gradeTable, TableView.GRADES.withSearch(text)));
     
         return mainPanel;
     }
         
+    private void showImportResult(GradeImportWorker.Progress progress) {
+        StringBuilder message = new StringBuilder(progress.toString());
+        if (!progress.errors.isEmpty()) {
+            message.append("\n\nSkipped rows:");
+            for (String error : progress.errors) {
+                message.append("\n").append(error);
+            }
+            if (progress.invalid > progress.errors.size()) {
+                message.append("\n... and ").append(progress.invalid - progress.errors.size()).append(" more");
+            }
+        }
+        if (progress.failure != null) {
+            message.append("\n\n").append(progress.failure).append("\nRun the import again on the same file to resume.");
+        }
+        JTextArea messageArea = new JTextArea(message.toString(), Math.min(15, message.toString().split("\n").length), 50);
+        messageArea.setEditable(false);
+        if (progress.failure != null) {
+            JOptionPane.showMessageDialog(this, new JScrollPane(messageArea), "Import Incomplete", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, new JScrollPane(messageArea), "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void showUserImportResult(UserImportWorker.Progress progress) {
+        StringBuilder message = new StringBuilder(progress.toString());
+        if (!progress.errors.isEmpty()) {
+            message.append("\n\nFailed rows:");
+            for (String error : progress.errors) {
+                message.append("\n").append(error);
+            }
+        }
+        if (progress.failure != null) {
+            message.append("\n\n").append(progress.failure).append("\nRun the import again; users already created will be skipped.");
+        }
+        JTextArea messageArea = new JTextArea(message.toString(), Math.min(15, message.toString().split("\n").length), 50);
+        messageArea.setEditable(false);
+        int type = progress.failure != null ? JOptionPane.ERROR_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+        JOptionPane.showMessageDialog(this, new JScrollPane(messageArea),
+            progress.failure != null ? "Import Incomplete" : "Import Complete", type);
+    }
+
+    // Statements that exceeded lms.db.slowQueryMs, with their query plans
+    private void showSlowQueries() {
+        java.io.StringWriter dump = new java.io.StringWriter();
+        try {
+            SlowQueryLog.dump(dump);
+        } catch (java.io.IOException e) {
+            showDatabaseError(e);
+            return;
+        }
+        JTextArea dumpArea = new JTextArea(dump.toString(), 25, 90);
+        dumpArea.setEditable(false);
+        dumpArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        dumpArea.setCaretPosition(0);
+        Object[] options = {"Save to File", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, new JScrollPane(dumpArea), "Slow Queries",
+            JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[1]);
+        if (choice != 0) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new java.io.File("slow-queries.txt"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Database.dumpSlowQueries(fileChooser.getSelectedFile().toPath());
+        } catch (java.io.IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not save slow queries: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showResourceStoreStats(ResourceStore.Stats stats) {
+        String message = String.format(
+            "Stored files: %d (%s)%n"
+            + "Course references: %d (%s if each had its own copy)%n"
+            + "Saved by deduplication: %s%n%n"
+            + "Since startup: %d files stored, %d were duplicates (%s)%n"
+            + "Garbage collected: %d files (%s)",
+            stats.blobs, formatBytes(stats.storedBytes), stats.references, formatBytes(stats.logicalBytes),
+            formatBytes(stats.savedBytes), stats.puts, stats.dedupHits, formatBytes(stats.dedupHitBytes),
+            stats.collected, formatBytes(stats.collectedBytes));
+        Object[] options = {"Collect Garbage Now", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, message, "Resource Store",
+            JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[1]);
+        if (choice != 0) {
+            return;
+        }
+        tasks.write(() -> {
+            ResourceStore.CollectResult result = Database.collectResourceGarbage();
+            if (result == null) {
+                throw new SQLException("Could not collect unreferenced resources");
+            }
+            return result;
+        }, result -> JOptionPane.showMessageDialog(this, "Garbage collection: " + result,
+            "Resource Store", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format("%.1f %sB", bytes / (double) (1L << (unit * 10)), " KMGTPE".charAt(unit));
+    }
+
+    private void showGradeStats(java.util.List<GradeStats> stats) {
+        String[] columns = {"Course ID", "Course", "Grades", "Mean", "Std Dev", "P10", "P25", "Median", "P75", "P90"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (GradeStats s : stats) {
+            model.addRow(new Object[]{s.getCourseId(), s.getCourseName(), s.getCount(),
+                String.format("%.1f", s.getMean()), String.format("%.1f", s.getStdDev()),
+                String.format("%.1f", s.getPercentile(0.10)), String.format("%.1f", s.getPercentile(0.25)),
+                String.format("%.1f", s.getMedian()), String.format("%.1f", s.getPercentile(0.75)),
+                String.format("%.1f", s.getPercentile(0.90))});
+        }
+        JTable statsTable = new JTable(model);
+        statsTable.setAutoCreateRowSorter(true);
+        JScrollPane statsScroll = new JScrollPane(statsTable);
+        statsScroll.setPreferredSize(new Dimension(800, 300));
+        JOptionPane.showMessageDialog(this, stats.isEmpty() ? "No grades recorded yet." : statsScroll,
+            "Course Grade Statistics", JOptionPane.PLAIN_MESSAGE);
+    }
+
     private void clearGradeFields(JTextField studentIdField, JTextField courseIdField, JTextField gradeField) {
         studentIdField.setText("");
         courseIdField.setText("");
@@ -951,12 +1536,7 @@ public class Admin extends JFrame {
     }
     
     private void refreshGradeTable(JTable gradeTable) {
-        ResultSet rs = Database.getAllGrades();
-        try {
-            gradeTable.setModel(buildTableModel(rs));
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        setLazyModel(gradeTable, TableView.GRADES);
     }
     
     
@@ -967,7 +1547,6 @@ public class Admin extends JFrame {
         // Create the table
         JTable announcementTable = new JTable();
         announcementTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        announcementTable.setAutoCreateRowSorter(true);
         JScrollPane scrollPane = new JScrollPane(announcementTable);
         refreshAnnouncementTable(announcementTable);
     
@@ -1013,6 +1592,9 @@ public class Admin extends JFrame {
         JButton submitButton = new JButton("Submit");
         JButton updateButton = new JButton("Update");
         JButton deleteButton = new JButton("Delete");
+        JButton queueButton = new JButton("Add to Batch");
+        JButton submitBatchButton = new JButton("Submit Batch (0)");
+        ArrayList<AnnouncementRow> pendingAnnouncements = new ArrayList<>();
     
         // Style the buttons
         submitButton.setBackground(Color.LIGHT_GRAY);
@@ -1073,6 +1655,8 @@ public class Admin extends JFrame {
         gbc.gridy++;
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
+        gbc.gridy++;
+        formPanel.add(createBatchPanel(queueButton, submitBatchButton), gbc);
     
         // Create a panel for the table and search field
         JPanel tablePanel = new JPanel(new BorderLayout());
@@ -1107,17 +1691,49 @@ public class Admin extends JFrame {
             String date = dateField.getText();
     
             if (!title.isEmpty() && !content.isEmpty() && !date.isEmpty()) {
-                Database.addAnnouncement(title, content, date);
-                JOptionPane.showMessageDialog(Admin.this, "Announcement added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshAnnouncementTable(announcementTable);
+                tasks.write(() -> Database.addAnnouncement(title, content, date), () -> {
+                    JOptionPane.showMessageDialog(Admin.this, "Announcement added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    refreshAnnouncementTable(announcementTable);
+                    clearAnnouncementFields(titleField, contentArea, dateField);
+                });
+            } else {
+                JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+    
+        queueButton.addActionListener(e -> {
+            String title = titleField.getText();
+            String content = contentArea.getText();
+            String date = dateField.getText();
+    
+            if (!title.isEmpty() && !content.isEmpty() && !date.isEmpty()) {
+                pendingAnnouncements.add(new AnnouncementRow(0, title, content, date));
+                submitBatchButton.setText("Submit Batch (" + pendingAnnouncements.size() + ")");
                 clearAnnouncementFields(titleField, contentArea, dateField);
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
             }
         });
     
+        submitBatchButton.addActionListener(e -> {
+            if (pendingAnnouncements.isEmpty()) {
+                JOptionPane.showMessageDialog(Admin.this, "There are no queued announcements to submit.", "Empty Batch", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            ArrayList<AnnouncementRow> batch = new ArrayList<>(pendingAnnouncements);
+            submitBatchButton.setEnabled(false);
+            tasks.write(() -> Database.addAnnouncements(batch), result -> {
+                submitBatchButton.setEnabled(true);
+                if (showBatchResult(result)) {
+                    pendingAnnouncements.removeAll(batch);
+                    refreshAnnouncementTable(announcementTable);
+                }
+                submitBatchButton.setText("Submit Batch (" + pendingAnnouncements.size() + ")");
+            });
+        });
+    
         updateButton.addActionListener(e -> {
-            int selectedRow = announcementTable.getSelectedRow();
+            int selectedRow = loadedSelection(announcementTable);
             if (selectedRow != -1) {
                 int id = (int) announcementTable.getValueAt(selectedRow, 0);
                 String title = titleField.getText();
@@ -1125,10 +1741,11 @@ public class Admin extends JFrame {
                 String date = dateField.getText();
     
                 if (!title.isEmpty() && !content.isEmpty() && !date.isEmpty()) {
-                    Database.updateAnnouncement(id, title, content, date);
-                    JOptionPane.showMessageDialog(Admin.this, "Announcement updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshAnnouncementTable(announcementTable);
-                    clearAnnouncementFields(titleField, contentArea, dateField);
+                    tasks.write(() -> Database.updateAnnouncement(id, title, content, date), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Announcement updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshAnnouncementTable(announcementTable);
+                        clearAnnouncementFields(titleField, contentArea, dateField);
+                    });
                 } else {
                     JOptionPane.showMessageDialog(Admin.this, "Please fill in all fields.", "Incomplete Form", JOptionPane.WARNING_MESSAGE);
                 }
@@ -1138,15 +1755,16 @@ public class Admin extends JFrame {
         });
     
         deleteButton.addActionListener(e -> {
-            int selectedRow = announcementTable.getSelectedRow();
+            int selectedRow = loadedSelection(announcementTable);
             if (selectedRow != -1) {
                 int id = (int) announcementTable.getValueAt(selectedRow, 0);
                 int confirm = JOptionPane.showConfirmDialog(Admin.this, "Are you sure you want to delete this announcement?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
                 if (confirm == JOptionPane.YES_OPTION) {
-                    Database.deleteAnnouncement(id);
-                    JOptionPane.showMessageDialog(Admin.this, "Announcement deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshAnnouncementTable(announcementTable);
-                    clearAnnouncementFields(titleField, contentArea, dateField);
+                    tasks.write(() -> Database.deleteAnnouncement(id), () -> {
+                        JOptionPane.showMessageDialog(Admin.this, "Announcement deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshAnnouncementTable(announcementTable);
+                        clearAnnouncementFields(titleField, contentArea, dateField);
+                    });
                 }
             } else {
                 JOptionPane.showMessageDialog(Admin.this, "Please select an announcement to delete.", "No Selection", JOptionPane.WARNING_MESSAGE);
@@ -1155,7 +1773,7 @@ public class Admin extends JFrame {
     
         announcementTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                int selectedRow = announcementTable.getSelectedRow();
+                int selectedRow = loadedSelection(announcementTable);
                 if (selectedRow != -1) {
                     titleField.setText((String) announcementTable.getValueAt(selectedRow, 1));
                     contentArea.setText((String) announcementTable.getValueAt(selectedRow, 2));
@@ -1165,11 +1783,9 @@ public class Admin extends JFrame {
         });
     
         searchButton.addActionListener(e -> {
-            String searchTerm = searchField.getText().toLowerCase();
-            TableRowSorter<TableModel> sorter = new TableRowSorter<>(announcementTable.getModel());
-            announcementTable.setRowSorter(sorter);
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchTerm));
+            setLazyModel(announcementTable, TableView.ANNOUNCEMENTS.withSearch(searchField.getText()));
         });
+        SearchDebouncer.attach(searchField, text -> setLazyModel(announcementTable, TableView.ANNOUNCEMENTS.withSearch(text)));
     
         return mainPanel;
     }
@@ -1181,12 +1797,7 @@ public class Admin extends JFrame {
     }
     
     private void refreshAnnouncementTable(JTable announcementTable) {
-        ResultSet rs = Database.getAllAnnouncements();
-        try {
-            announcementTable.setModel(buildTableModel(rs));
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
+        setLazyModel(announcementTable, TableView.ANNOUNCEMENTS);
     }
 
 
@@ -0,0 +1,40 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class AnnouncementRow {
+    private final int id;
+    private final String title;
+    private final String content;
+    private final String date;
+
+    public AnnouncementRow(int id, String title, String content, String date) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.date = date;
+    }
+
+    static AnnouncementRow from(ResultSet rs) throws SQLException {
+        return new AnnouncementRow(
+            rs.getInt("id"),
+            rs.getString("title"),
+            rs.getString("content"),
+            rs.getString("date"));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getDate() {
+        return date;
+    }
+}
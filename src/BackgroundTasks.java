@@ -0,0 +1,188 @@
+import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs database work off the Swing event dispatch thread and hands results back to it.
+//
+// Reads belong to a group (usually the card that shows them). Starting a read cancels
+// the previous read in the same group, and cancel(group) drops everything in flight for
+// a card the user has left, so stale results never reach the screen. Writes are never
+// cancelled once started. Call it from the EDT; all callbacks run on the EDT too.
+public class BackgroundTasks {
+    private static final int THREADS = Integer.getInteger("lms.db.workerThreads", 4);
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "db-worker-" + threadNumber.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, List<SwingWorker<?, ?>>> running = new HashMap<>();
+    private final Consumer<Exception> onError;
+
+    public BackgroundTasks(Consumer<Exception> onError) {
+        this.onError = onError;
+    }
+
+    // Pushes rows to a consumer; used by streaming reads
+    public interface RowSource<T> {
+        void produce(RowConsumer<T> consumer) throws Exception;
+    }
+
+    // Runs a query and passes its result to onResult, unless a newer read in the group replaced it
+    public <T> void load(String group, Callable<T> query, Consumer<T> onResult) {
+        cancel(group);
+        submit(group, query, onResult);
+    }
+
+    // How a submitted query ended, for callers that keep their own in-flight bookkeeping
+    public enum Outcome { SUCCEEDED, FAILED, CANCELLED }
+
+    // Runs a query alongside any others already running in the group
+    public <T> void submit(String group, Callable<T> query, Consumer<T> onResult) {
+        submit(group, query, onResult, outcome -> { });
+    }
+
+    // onSettled is told how the query ended before onResult or the error handler runs
+    public <T> void submit(String group, Callable<T> query, Consumer<T> onResult, Consumer<Outcome> onSettled) {
+        track(group, new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return query.call();
+            }
+
+            @Override
+            protected void done() {
+                untrack(group, this);
+                if (isCancelled()) {
+                    onSettled.accept(Outcome.CANCELLED);
+                    return;
+                }
+                T result;
+                try {
+                    result = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    onSettled.accept(e.getCause() instanceof CancellationException ? Outcome.CANCELLED : Outcome.FAILED);
+                    fail(e);
+                    return;
+                }
+                onSettled.accept(Outcome.SUCCEEDED);
+                onResult.accept(result);
+            }
+        });
+    }
+
+    // Like load(), but rows reach onChunk while the query is still running. Rows published
+    // between two EDT turns are coalesced into one chunk, so the UI updates once per chunk.
+    public <T> void stream(String group, RowSource<T> source, Consumer<List<T>> onChunk, Runnable onDone) {
+        cancel(group);
+        track(group, new SwingWorker<Void, T>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                source.produce(row -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    publish(row);
+                });
+                return null;
+            }
+
+            @Override
+            protected void process(List<T> chunk) {
+                if (!isCancelled()) {
+                    onChunk.accept(new ArrayList<>(chunk));
+                }
+            }
+
+            @Override
+            protected void done() {
+                untrack(group, this);
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    get();
+                    onDone.run();
+                } catch (InterruptedException | ExecutionException e) {
+                    fail(e);
+                }
+            }
+        });
+    }
+
+    // Runs a write and then onDone; not tied to a group and never cancelled
+    public void write(Runnable work, Runnable onDone) {
+        write(() -> {
+            work.run();
+            return null;
+        }, result -> onDone.run());
+    }
+
+    public <T> void write(Callable<T> work, Consumer<T> onDone) {
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return work.call();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    onDone.accept(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    fail(e);
+                }
+            }
+        };
+        executor.execute(worker);
+    }
+
+    public void cancel(String group) {
+        List<SwingWorker<?, ?>> workers = running.remove(group);
+        if (workers != null) {
+            for (SwingWorker<?, ?> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+    }
+
+    public void cancelAll() {
+        for (String group : new ArrayList<>(running.keySet())) {
+            cancel(group);
+        }
+    }
+
+    private void track(String group, SwingWorker<?, ?> worker) {
+        running.computeIfAbsent(group, g -> new ArrayList<>()).add(worker);
+        executor.execute(worker);
+    }
+
+    private void untrack(String group, SwingWorker<?, ?> worker) {
+        List<SwingWorker<?, ?>> workers = running.get(group);
+        if (workers != null) {
+            workers.remove(worker);
+            if (workers.isEmpty()) {
+                running.remove(group);
+            }
+        }
+    }
+
+    private void fail(Exception e) {
+        Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception
+                ? (Exception) e.getCause() : e;
+        if (cause instanceof CancellationException) {
+            return;
+        }
+        onError.accept(cause);
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a Database batch write. Batches are all-or-nothing: either every row was
+// written and committed, or nothing was and getErrors() says which rows were at fault.
+public class BatchResult {
+    private final int submitted;
+    private final int written;
+    private final List<RowError> errors;
+
+    BatchResult(int submitted, int written, List<RowError> errors) {
+        this.submitted = submitted;
+        this.written = written;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    public boolean isCommitted() {
+        return errors.isEmpty();
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return isCommitted()
+                ? written + " of " + submitted + " rows written"
+                : "batch rolled back, " + errors.size() + " error(s): " + errors;
+    }
+
+    public static class RowError {
+        private final int index;
+        private final String message;
+
+        public RowError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        // Position of the row in the submitted list, or -1 if the error is not tied to a row
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return index < 0 ? message : "row " + (index + 1) + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.awt.EventQueue;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Bounded pool of SQLite connections. Idle connections are kept in LIFO order so the
+// most recently used (and therefore warmest) connection is handed out first.
+public class ConnectionPool {
+    // What to do when a connection is borrowed on the Swing event dispatch thread:
+    // "warn" prints the offending call site, "fail" throws, "off" does nothing.
+    // EdtAccessCheck runs the UI with "fail" to catch regressions that freeze it.
+    private static final String EDT_POLICY = System.getProperty("lms.db.edtPolicy", "warn");
+    // Borrows seen on the event dispatch thread under any policy but "off"
+    private static final AtomicInteger edtViolations = new AtomicInteger();
+
+    private final String url;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+    private final ConnectionInitializer initializer;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int total;
+    private int active;
+    private boolean closed;
+
+    // Statistics, guarded by this
+    private long borrowCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private int peakActive;
+    private long timeoutCount;
+    private final long startNanos = System.nanoTime();
+    private long lastEventNanos = startNanos;
+    private double activeNanosIntegral;
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+
+    // Runs once on every physical connection before it is handed out for the first time
+    public interface ConnectionInitializer {
+        void initialize(Connection conn) throws SQLException;
+    }
+
+    public ConnectionPool(String url, int maxSize, long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int statementCacheSize, ConnectionInitializer initializer) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("Statement cache size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.initializer = initializer;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static int getEdtViolations() {
+        return edtViolations.get();
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        if (!"off".equals(EDT_POLICY) && EventQueue.isDispatchThread()) {
+            IllegalStateException e = new IllegalStateException("Database accessed on the Swing event dispatch thread");
+            edtViolations.incrementAndGet();
+            boolean fail = "fail".equals(EDT_POLICY);
+            System.out.println((fail ? "Error: " : "Warning: ") + e.getMessage() + " at " + callSite(e));
+            if (fail) {
+                throw e;
+            }
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        boolean create = false;
+
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool is shut down");
+                }
+                PooledConnection pc = idle.pollFirst();
+                if (pc != null) {
+                    if (pc.isValid()) {
+                        checkedOut(pc, start);
+                        return pc;
+                    }
+                    pc.closeQuietly();
+                    total--;
+                    continue;
+                }
+                if (total < maxSize) {
+                    total++;
+                    create = true;
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount++;
+                    throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                }
+            }
+        }
+
+        // Open the physical connection outside the lock; the slot is already reserved
+        PooledConnection pc;
+        try {
+            Connection conn = openConnection();
+            pc = new PooledConnection(this, conn,
+                    new StatementCache(conn, statementCacheSize, statementHits, statementMisses, statementEvictions));
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                total--;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            checkedOut(pc, start);
+        }
+        return pc;
+    }
+
+    // First stack frame outside the database layer
+    private static String callSite(Throwable t) {
+        for (StackTraceElement frame : t.getStackTrace()) {
+            String cls = frame.getClassName();
+            if (!cls.equals(ConnectionPool.class.getName()) && !cls.startsWith(Database.class.getName())) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    protected Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        if (initializer != null) {
+            try {
+                initializer.initialize(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    // Runs a periodic task on the pool's maintenance thread until the pool is shut down
+    public void scheduleMaintenance(Runnable task, long periodMillis) {
+        evictor.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.out.println("Error in database maintenance task: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkedOut(PooledConnection pc, long start) {
+        long waited = System.nanoTime() - start;
+        accumulate();
+        active++;
+        peakActive = Math.max(peakActive, active);
+        borrowCount++;
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+        pc.markBorrowed();
+    }
+
+    void release(PooledConnection pc) {
+        boolean reusable = pc.reset();
+        synchronized (this) {
+            accumulate();
+            active--;
+            if (closed || !reusable) {
+                total--;
+                pc.closeQuietly();
+            } else {
+                idle.offerFirst(pc);
+            }
+            notifyAll();
+        }
+    }
+
+    private void accumulate() {
+        long now = System.nanoTime();
+        activeNanosIntegral += (double) active * (now - lastEventNanos);
+        lastEventNanos = now;
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (this) {
+            // Always keep one warm connection around
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > 1) {
+                PooledConnection pc = it.next();
+                if (pc.getLastUsed() < cutoff) {
+                    it.remove();
+                    total--;
+                    pc.closeQuietly();
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        evictor.shutdownNow();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (PooledConnection pc : idle) {
+                pc.closeQuietly();
+            }
+            total -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+    }
+
+    public synchronized Stats getStats() {
+        accumulate();
+        double elapsed = Math.max(1, lastEventNanos - startNanos);
+        return new Stats(maxSize, total, active, idle.size(), peakActive, borrowCount, timeoutCount,
+                borrowCount == 0 ? 0 : totalWaitNanos / borrowCount, maxWaitNanos,
+                activeNanosIntegral / (elapsed * maxSize),
+                statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+    }
+
+    public static class Stats {
+        public final int maxSize;
+        public final int open;
+        public final int active;
+        public final int idle;
+        public final int peakActive;
+        public final long borrows;
+        public final long timeouts;
+        public final long avgWaitNanos;
+        public final long maxWaitNanos;
+        public final double utilization;
+        public final long statementHits;
+        public final long statementMisses;
+        public final long statementEvictions;
+
+        Stats(int maxSize, int open, int active, int idle, int peakActive, long borrows, long timeouts,
+              long avgWaitNanos, long maxWaitNanos, double utilization,
+              long statementHits, long statementMisses, long statementEvictions) {
+            this.maxSize = maxSize;
+            this.open = open;
+            this.active = active;
+            this.idle = idle;
+            this.peakActive = peakActive;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.avgWaitNanos = avgWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.utilization = utilization;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public double statementHitRate() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0 : (double) statementHits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool[size=%d open=%d active=%d idle=%d peak=%d borrows=%d timeouts=%d " +
+                            "avgWait=%.3fms maxWait=%.3fms utilization=%.1f%% " +
+                            "stmtHits=%d stmtMisses=%d stmtEvictions=%d stmtHitRate=%.1f%%]",
+                    maxSize, open, active, idle, peakActive, borrows, timeouts,
+                    avgWaitNanos / 1e6, maxWaitNanos / 1e6, utilization * 100,
+                    statementHits, statementMisses, statementEvictions, statementHitRate() * 100);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache of the courses table. Readers share one immutable Snapshot, so
+// lookups never lock; writes to the table patch the snapshot with just the changed row
+// instead of throwing the whole catalog away.
+public class CourseCatalog {
+    public interface Loader {
+        List<CourseRow> load() throws SQLException;
+    }
+
+    private final Loader loader;
+    private volatile Snapshot snapshot;
+    // Held for a whole load so concurrent misses load once; writes never take it
+    private final Object loadLock = new Object();
+    // Bumped by every change, guarded by this. Loads run without holding this, so a write
+    // can land while one is reading the table; the load then does not install what it read.
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile long lastLoadNanos;
+
+    public CourseCatalog(Loader loader) {
+        this.loader = loader;
+    }
+
+    public Snapshot get() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        synchronized (loadLock) {
+            // Another reader may have loaded it while we waited for the lock
+            current = snapshot;
+            if (current != null) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+            long startGeneration;
+            synchronized (this) {
+                startGeneration = generation;
+            }
+            long start = System.nanoTime();
+            Snapshot loaded = new Snapshot(loader.load());
+            lastLoadNanos = System.nanoTime() - start;
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    snapshot = loaded;
+                }
+            }
+            return loaded;
+        }
+    }
+
+    public synchronized void put(CourseRow course) {
+        generation++;
+        invalidations.increment();
+        if (snapshot != null) {
+            snapshot = snapshot.with(course);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        generation++;
+        invalidations.increment();
+        if (snapshot != null) {
+            snapshot = snapshot.without(id);
+        }
+    }
+
+    // For writes whose effect on individual rows is not known, e.g. batch inserts
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.increment();
+        snapshot = null;
+    }
+
+    public Stats getStats() {
+        Snapshot current = snapshot;
+        return new Stats(current == null ? 0 : current.size(), hits.sum(), misses.sum(),
+                invalidations.sum(), lastLoadNanos);
+    }
+
+    // Immutable view of the whole catalog with the course -> chapter -> lesson hierarchy
+    // and the filter option lists prebuilt. with() and without() copy only what one row
+    // touches: the row list, the row's chapter lists, the name lists when a name comes or
+    // goes, and the text index if it has been built.
+    public static class Snapshot {
+        private static final Comparator<CourseRow> BY_ID = Comparator.comparingInt(CourseRow::getId);
+
+        // Ordered by id; lookups by id binary search it
+        private final List<CourseRow> courses;
+        private final Map<String, Map<String, List<CourseRow>>> hierarchy;
+        private final List<String> courseNames;
+        private final List<String> chapterNames;
+        private volatile NGramIndex textIndex;
+
+        Snapshot(List<CourseRow> rows) {
+            List<CourseRow> ordered = new ArrayList<>(rows);
+            ordered.sort(BY_ID);
+            // Keep the last row for a repeated id, as a map keyed by id would
+            int kept = 0;
+            for (CourseRow row : ordered) {
+                if (kept > 0 && ordered.get(kept - 1).getId() == row.getId()) {
+                    ordered.set(kept - 1, row);
+                } else {
+                    ordered.set(kept++, row);
+                }
+            }
+            ordered.subList(kept, ordered.size()).clear();
+            courses = Collections.unmodifiableList(ordered);
+
+            Map<String, Map<String, List<CourseRow>>> tree = new TreeMap<>();
+            for (CourseRow row : ordered) {
+                tree.computeIfAbsent(nullToEmpty(row.getName()), k -> new TreeMap<>())
+                    .computeIfAbsent(nullToEmpty(row.getChapter()), k -> new ArrayList<>())
+                    .add(row);
+            }
+            for (Map.Entry<String, Map<String, List<CourseRow>>> course : tree.entrySet()) {
+                for (Map.Entry<String, List<CourseRow>> chapter : course.getValue().entrySet()) {
+                    chapter.setValue(Collections.unmodifiableList(chapter.getValue()));
+                }
+                course.setValue(Collections.unmodifiableMap(course.getValue()));
+            }
+            hierarchy = Collections.unmodifiableMap(tree);
+            courseNames = namesOf(tree);
+            chapterNames = chaptersOf(tree);
+        }
+
+        private Snapshot(List<CourseRow> courses, Map<String, Map<String, List<CourseRow>>> hierarchy,
+                         List<String> courseNames, List<String> chapterNames, NGramIndex textIndex) {
+            this.courses = courses;
+            this.hierarchy = hierarchy;
+            this.courseNames = courseNames;
+            this.chapterNames = chapterNames;
+            this.textIndex = textIndex;
+        }
+
+        private static String nullToEmpty(String s) {
+            return s == null ? "" : s;
+        }
+
+        private static List<String> namesOf(Map<String, Map<String, List<CourseRow>>> tree) {
+            return Collections.unmodifiableList(new ArrayList<>(tree.keySet()));
+        }
+
+        private static List<String> chaptersOf(Map<String, Map<String, List<CourseRow>>> tree) {
+            TreeSet<String> chapters = new TreeSet<>();
+            for (Map<String, List<CourseRow>> course : tree.values()) {
+                chapters.addAll(course.keySet());
+            }
+            return Collections.unmodifiableList(new ArrayList<>(chapters));
+        }
+
+        private static String text(CourseRow row) {
+            return NGramIndex.join(row.getName(), row.getChapter(), row.getLesson(), row.getResourceType());
+        }
+
+        // Position of the id in courses, or (-insertion point - 1) like Collections.binarySearch
+        private int indexOf(int id) {
+            int low = 0;
+            int high = courses.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midId = courses.get(mid).getId();
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Snapshot with(CourseRow course) {
+            int at = indexOf(course.getId());
+            CourseRow old = at >= 0 ? courses.get(at) : null;
+            List<CourseRow> rows = new ArrayList<>(courses.size() + 1);
+            rows.addAll(courses);
+            NGramIndex index = textIndex;
+            if (old != null) {
+                rows.set(at, course);
+                index = index == null ? null : index.withRow(at, text(course));
+            } else {
+                rows.add(-at - 1, course);
+                // New ids normally sort last; the index can only grow at the end
+                index = index == null || -at - 1 != courses.size() ? null : index.withAppended(text(course));
+            }
+            return patch(rows, old, course, index);
+        }
+
+        Snapshot without(int id) {
+            int at = indexOf(id);
+            if (at < 0) {
+                return this;
+            }
+            List<CourseRow> rows = new ArrayList<>(courses);
+            CourseRow old = rows.remove(at);
+            NGramIndex index = textIndex;
+            return patch(rows, old, null, index == null ? null : index.withoutRow(at));
+        }
+
+        // Moves one row within the hierarchy: out of old's chapter (if old is set) and into
+        // added's (if set). Only the chapter lists and course maps involved are copied.
+        private Snapshot patch(List<CourseRow> rows, CourseRow old, CourseRow added, NGramIndex index) {
+            Map<String, Map<String, List<CourseRow>>> tree = new TreeMap<>(hierarchy);
+            if (old != null) {
+                String name = nullToEmpty(old.getName());
+                Map<String, List<CourseRow>> chapters = new TreeMap<>(tree.get(name));
+                String chapter = nullToEmpty(old.getChapter());
+                List<CourseRow> lessons = new ArrayList<>(chapters.get(chapter));
+                lessons.remove(Collections.binarySearch(lessons, old, BY_ID));
+                if (lessons.isEmpty()) {
+                    chapters.remove(chapter);
+                } else {
+                    chapters.put(chapter, Collections.unmodifiableList(lessons));
+                }
+                if (chapters.isEmpty()) {
+                    tree.remove(name);
+                } else {
+                    tree.put(name, Collections.unmodifiableMap(chapters));
+                }
+            }
+            if (added != null) {
+                String name = nullToEmpty(added.getName());
+                Map<String, List<CourseRow>> existing = tree.get(name);
+                Map<String, List<CourseRow>> chapters = existing == null ? new TreeMap<>() : new TreeMap<>(existing);
+                String chapter = nullToEmpty(added.getChapter());
+                List<CourseRow> existingLessons = chapters.get(chapter);
+                List<CourseRow> lessons = existingLessons == null ? new ArrayList<>() : new ArrayList<>(existingLessons);
+                lessons.add(-Collections.binarySearch(lessons, added, BY_ID) - 1, added);
+                chapters.put(chapter, Collections.unmodifiableList(lessons));
+                tree.put(name, Collections.unmodifiableMap(chapters));
+            }
+            List<String> names = tree.keySet().equals(hierarchy.keySet()) ? courseNames : namesOf(tree);
+            // A chapter can only come or go if one of the two rows' chapters did
+            boolean chaptersChanged = (old != null && !hasChapter(tree, nullToEmpty(old.getChapter())))
+                || (added != null && Collections.binarySearch(chapterNames, nullToEmpty(added.getChapter())) < 0);
+            return new Snapshot(Collections.unmodifiableList(rows), Collections.unmodifiableMap(tree), names,
+                chaptersChanged ? chaptersOf(tree) : chapterNames, index);
+        }
+
+        private static boolean hasChapter(Map<String, Map<String, List<CourseRow>>> tree, String chapter) {
+            for (Map<String, List<CourseRow>> course : tree.values()) {
+                if (course.containsKey(chapter)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int size() {
+            return courses.size();
+        }
+
+        public CourseRow getCourse(int id) {
+            int at = indexOf(id);
+            return at < 0 ? null : courses.get(at);
+        }
+
+        // All rows ordered by id
+        public List<CourseRow> getCourses() {
+            return courses;
+        }
+
+        public Map<String, Map<String, List<CourseRow>>> getHierarchy() {
+            return hierarchy;
+        }
+
+        // Sorted, distinct course names for filter boxes
+        public List<String> getCourseNames() {
+            return courseNames;
+        }
+
+        // Sorted, distinct chapter names across all courses
+        public List<String> getChapterNames() {
+            return chapterNames;
+        }
+
+        public List<String> getChapterNames(String course) {
+            Map<String, List<CourseRow>> chapters = hierarchy.get(course);
+            return chapters == null ? Collections.emptyList() : new ArrayList<>(chapters.keySet());
+        }
+
+        // Substring index over name, chapter, lesson and resource type, with row numbers
+        // matching getCourses(). Built on first use (call it off the EDT) and then shared.
+        public NGramIndex getTextIndex() {
+            NGramIndex index = textIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = textIndex;
+                    if (index == null) {
+                        List<String> texts = new ArrayList<>(courses.size());
+                        for (CourseRow row : courses) {
+                            texts.add(text(row));
+                        }
+                        index = new NGramIndex(texts);
+                        textIndex = index;
+                    }
+                }
+            }
+            return index;
+        }
+
+        // Lessons matching the given course and chapter; null matches everything
+        public List<CourseRow> find(String course, String chapter) {
+            if (course == null && chapter == null) {
+                return courses;
+            }
+            List<CourseRow> result = new ArrayList<>();
+            for (Map.Entry<String, Map<String, List<CourseRow>>> c : hierarchy.entrySet()) {
+                if (course != null && !course.equals(c.getKey())) {
+                    continue;
+                }
+                for (Map.Entry<String, List<CourseRow>> ch : c.getValue().entrySet()) {
+                    if (chapter == null || chapter.equals(ch.getKey())) {
+                        result.addAll(ch.getValue());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class Stats {
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long invalidations;
+        public final long lastLoadNanos;
+
+        Stats(int size, long hits, long misses, long invalidations, long lastLoadNanos) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.lastLoadNanos = lastLoadNanos;
+        }
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("catalog[size=%d hits=%d misses=%d invalidations=%d hitRate=%.1f%% lastLoad=%.3fms]",
+                    size, hits, misses, invalidations, hitRate() * 100, lastLoadNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class CourseRow {
+    private final int id;
+    private final String name;
+    private final String chapter;
+    private final String lesson;
+    private final String resourceType;
+    private final String filePath;
+    private final String contentHash;
+
+    public CourseRow(int id, String name, String chapter, String lesson, String resourceType, String filePath) {
+        this(id, name, chapter, lesson, resourceType, filePath, null);
+    }
+
+    public CourseRow(int id, String name, String chapter, String lesson, String resourceType, String filePath, String contentHash) {
+        this.id = id;
+        this.name = name;
+        this.chapter = chapter;
+        this.lesson = lesson;
+        this.resourceType = resourceType;
+        this.filePath = filePath;
+        this.contentHash = contentHash;
+    }
+
+    static CourseRow from(ResultSet rs) throws SQLException {
+        return new CourseRow(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getString("chapter"),
+            rs.getString("lesson"),
+            rs.getString("resource_type"),
+            rs.getString("file_path"),
+            rs.getString("content_hash"));
+    }
+
+    CourseRow withId(int newId) {
+        return new CourseRow(newId, name, chapter, lesson, resourceType, filePath, contentHash);
+    }
+
+    CourseRow withContentHash(String hash) {
+        return new CourseRow(id, name, chapter, lesson, resourceType, filePath, hash);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getChapter() {
+        return chapter;
+    }
+
+    public String getLesson() {
+        return lesson;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    // The original file name for files in the resource store, or an absolute path for rows
+    // saved before it existed; use Database.resolveResource to read the file
+    public String getFilePath() {
+        return filePath;
+    }
+
+    // SHA-256 of the file in the resource store, or null for rows that predate it
+    public String getContentHash() {
+        return contentHash;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measures password verification throughput through a CredentialVerifier at several PBKDF2
+// costs, with more concurrent clients than cores to mimic a login burst. Use it to pick
+// lms.auth.iterations for the hardware the app runs on.
+// Usage: java CredentialBenchmark [iterations,...] [seconds per setting]
+public class CredentialBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        String costs = args.length > 0 ? args[0] : "10000,100000,210000,600000";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int clients = cores * 4;
+
+        System.out.printf("%d cores, %d concurrent clients, %d s per setting%n", cores, clients, seconds);
+        System.out.printf("%10s %12s %16s %14s %14s %10s%n",
+                "iterations", "logins/s", "logins/s/core", "avgVerify ms", "avgQueue ms", "rejected");
+        for (String cost : costs.split(",")) {
+            run(Integer.parseInt(cost.trim()), cores, clients, seconds);
+        }
+    }
+
+    private static void run(int iterations, int cores, int clients, int seconds) throws InterruptedException {
+        PasswordHasher hasher = new PasswordHasher(iterations);
+        // Queue sized so every client fits; rejections would mean the pool is misconfigured
+        CredentialVerifier verifier = new CredentialVerifier(hasher, cores, clients, 60_000L);
+        String stored = hasher.hash("correct horse battery staple");
+        verifier.verify("correct horse battery staple", stored); // warm up
+
+        LongAdder logins = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (verifier.verify("correct horse battery staple", stored)) {
+                            logins.increment();
+                        }
+                    }
+                } catch (IllegalStateException e) {
+                    System.out.println("Error verifying credentials: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            }, "benchmark-client-" + i);
+            t.start();
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        CredentialVerifier.Stats stats = verifier.getStats();
+        double perSecond = logins.sum() / elapsed;
+        System.out.printf("%10d %12.1f %16.1f %14.3f %14.3f %10d%n",
+                iterations, perSecond, perSecond / cores,
+                stats.avgVerifyNanos / 1e6, stats.avgQueueWaitNanos / 1e6, stats.rejected);
+        verifier.shutdown();
+    }
+}
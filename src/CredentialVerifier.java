@@ -0,0 +1,203 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs password hashing and hash checks on a fixed pool sized to the CPU with a bounded
+// queue. During a login burst the hashing work queues here instead of piling onto every
+// database worker, and once the queue is full further logins are turned away immediately.
+// Hashes for new or migrated passwords go through the same pool, so they cannot add to the
+// load beyond it either.
+public class CredentialVerifier {
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    // Verified for unknown usernames so they take as long as a wrong password
+    private volatile String dummyHash;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    public CredentialVerifier(PasswordHasher hasher, int threads, int queueCapacity, long timeoutMillis) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Threads and queue capacity must be at least 1");
+        }
+        this.hasher = hasher;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "credential-verifier-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public PasswordHasher getHasher() {
+        return hasher;
+    }
+
+    // Hashes a password to store on the pool and waits for it; throws IllegalStateException like verify()
+    public String hash(String password) {
+        return await(submit(() -> hasher.hash(password)));
+    }
+
+    // Hashes a list of passwords in order. At most one per thread is in flight at a time, so a
+    // bulk import leaves the rest of the queue free for logins.
+    public List<String> hashAll(List<String> passwords) {
+        List<String> hashes = new ArrayList<>(passwords.size());
+        ArrayDeque<Future<String>> inFlight = new ArrayDeque<>();
+        try {
+            for (String password : passwords) {
+                if (inFlight.size() >= threads) {
+                    hashes.add(await(inFlight.poll()));
+                }
+                inFlight.add(submit(() -> hasher.hash(password)));
+            }
+            while (!inFlight.isEmpty()) {
+                hashes.add(await(inFlight.poll()));
+            }
+        } finally {
+            for (Future<String> left : inFlight) {
+                left.cancel(true);
+            }
+        }
+        return hashes;
+    }
+
+    public boolean needsRehash(String stored) {
+        return hasher.needsRehash(stored);
+    }
+
+    // Checks the password on the verifier pool and waits for the answer. Throws
+    // IllegalStateException if the queue is full or the check does not finish in time.
+    public boolean verify(String password, String stored) {
+        return await(submit(() -> hasher.verify(password, stored)));
+    }
+
+    private <T> Future<T> submit(Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long start = System.nanoTime();
+                long waited = start - queuedAt;
+                queueWaitNanos.add(waited);
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+                try {
+                    return work.call();
+                } finally {
+                    verifyNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new IllegalStateException("Too many logins in progress, please try again");
+        }
+        submitted.increment();
+        peakQueued.accumulateAndGet(executor.getQueue().size(), Math::max);
+        return result;
+    }
+
+    private <T> T await(Future<T> result) {
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            timedOut.increment();
+            throw new IllegalStateException("Timed out after " + timeoutMillis + " ms verifying credentials");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying credentials");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error verifying credentials: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // Same cost as a real check, always false
+    public boolean verifyUnknownUser(String password) {
+        if (dummyHash == null) {
+            dummyHash = hasher.hash("unknown-user");
+        }
+        verify(password, dummyHash);
+        return false;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Stats getStats() {
+        long done = completed.sum();
+        return new Stats(threads, queueCapacity, hasher.getIterations(), executor.getQueue().size(), peakQueued.get(),
+                executor.getActiveCount(), submitted.sum(), done, rejected.sum(), timedOut.sum(),
+                done == 0 ? 0 : queueWaitNanos.sum() / done, maxQueueWaitNanos.get(),
+                done == 0 ? 0 : verifyNanos.sum() / done);
+    }
+
+    public static class Stats {
+        public final int threads;
+        public final int queueCapacity;
+        public final int iterations;
+        public final int queued;
+        public final int peakQueued;
+        public final int active;
+        public final long submitted;
+        public final long completed;
+        public final long rejected;
+        public final long timedOut;
+        public final long avgQueueWaitNanos;
+        public final long maxQueueWaitNanos;
+        public final long avgVerifyNanos;
+
+        Stats(int threads, int queueCapacity, int iterations, int queued, int peakQueued, int active,
+              long submitted, long completed, long rejected, long timedOut,
+              long avgQueueWaitNanos, long maxQueueWaitNanos, long avgVerifyNanos) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.iterations = iterations;
+            this.queued = queued;
+            this.peakQueued = peakQueued;
+            this.active = active;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.timedOut = timedOut;
+            this.avgQueueWaitNanos = avgQueueWaitNanos;
+            this.maxQueueWaitNanos = maxQueueWaitNanos;
+            this.avgVerifyNanos = avgVerifyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("credentials[threads=%d iterations=%d queued=%d/%d peakQueued=%d active=%d " +
+                            "submitted=%d completed=%d rejected=%d timedOut=%d " +
+                            "avgQueueWait=%.3fms maxQueueWait=%.3fms avgVerify=%.3fms]",
+                    threads, iterations, queued, queueCapacity, peakQueued, active,
+                    submitted, completed, rejected, timedOut,
+                    avgQueueWaitNanos / 1e6, maxQueueWaitNanos / 1e6, avgVerifyNanos / 1e6);
+        }
+    }
+}
@@ -1,9 +1,501 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 
 public class Database {
-    private static final String DB_URL = "jdbc:sqlite:db.db";
+    // Overridable so tools such as DatabaseBenchmark can work on a scratch file
+    private static final String DB_PATH = System.getProperty("lms.db.path", "db.db");
+    private static final String DB_URL = "jdbc:sqlite:" + DB_PATH;
+    private static final StorageProfile STORAGE_PROFILE =
+            StorageProfile.named(System.getProperty("lms.db.profile", "balanced"));
+    private static final long CHECKPOINT_INTERVAL_MS = Long.getLong("lms.db.checkpointIntervalMs", 30_000L);
+    private static final long METRICS_INTERVAL_MS = Long.getLong("lms.db.metricsIntervalMs", 60_000L);
+    private static final int POOL_SIZE = Integer.getInteger("lms.db.poolSize", 4);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("lms.db.poolIdleTimeoutMs", 60_000L);
+    private static final int BATCH_SIZE = Integer.getInteger("lms.db.batchSize", 500);
+    private static final int FETCH_SIZE = Integer.getInteger("lms.db.fetchSize", 256);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("lms.db.poolBorrowTimeoutMs", 5_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("lms.db.statementCacheSize", 64);
+    // PBKDF2 cost; see CredentialBenchmark for logins per second per core at each setting
+    private static final int AUTH_ITERATIONS = Integer.getInteger("lms.auth.iterations", 210_000);
+    private static final int AUTH_THREADS = Integer.getInteger("lms.auth.threads", Runtime.getRuntime().availableProcessors());
+    private static final int AUTH_QUEUE_CAPACITY = Integer.getInteger("lms.auth.queueCapacity", 256);
+    private static final long AUTH_TIMEOUT_MS = Long.getLong("lms.auth.timeoutMs", 10_000L);
+    private static final ConnectionPool pool = new ConnectionPool(
+            DB_URL, POOL_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, STATEMENT_CACHE_SIZE,
+            STORAGE_PROFILE::apply);
+    private static final CourseCatalog catalog = new CourseCatalog(Database::loadCourses);
+    // "reject" refuses schedule writes that double-book a room; "warn" saves them and returns the clashes
+    private static final boolean REJECT_SCHEDULE_CONFLICTS =
+            !"warn".equalsIgnoreCase(System.getProperty("lms.schedule.conflicts", "reject"));
+    private static final ScheduleConflicts timetable = new ScheduleConflicts(Database::loadSchedules);
+    // Course files are copied into this content-addressed store; see ResourceStore
+    private static final ResourceStore resources = new ResourceStore(
+            Paths.get(System.getProperty("lms.store.dir", "resources")),
+            Long.getLong("lms.store.gcGraceMs", 3_600_000L));
+    private static final long STORE_GC_INTERVAL_MS = Long.getLong("lms.store.gcIntervalMs", 600_000L);
+    private static final CredentialVerifier credentials = new CredentialVerifier(
+            new PasswordHasher(AUTH_ITERATIONS), AUTH_THREADS, AUTH_QUEUE_CAPACITY, AUTH_TIMEOUT_MS);
     private static String currentUserId;
 
+    private static final String SQL_CREDENTIALS_BY_NAME = "SELECT id, password, password_hash FROM users WHERE username = ?";
+    private static final String SQL_USER_BY_NAME = "SELECT * FROM users WHERE username = ?";
+    private static final String SQL_INSERT_USER =
+            "INSERT INTO users (username, password, password_hash, user_type) VALUES (?, '', ?, ?) ON CONFLICT (username) DO NOTHING";
+    private static final String SQL_UPDATE_PASSWORD_HASH = "UPDATE users SET password = '', password_hash = ? WHERE id = ?";
+    private static final String SQL_GRADES_BY_STUDENT = "SELECT * FROM grades WHERE student_id = ?";
+    // One round trip for the student's grades page: rows come from idx_grades_student in
+    // course order, and the window aggregates repeat the summary on every row
+    private static final String SQL_GRADE_REPORT =
+            "SELECT id, course_id, course_name, grade, points, COUNT(grade) OVER () AS graded, " +
+            "AVG(grade) OVER () AS average, AVG(points) OVER () AS gpa FROM (" +
+            "SELECT g.id, g.course_id, c.name AS course_name, g.grade, " +
+            "CASE WHEN g.grade >= 90 THEN 4.0 WHEN g.grade >= 80 THEN 3.0 WHEN g.grade >= 70 THEN 2.0 " +
+            "WHEN g.grade >= 60 THEN 1.0 WHEN g.grade IS NOT NULL THEN 0.0 END AS points " +
+            "FROM grades g LEFT JOIN courses c ON c.id = g.course_id WHERE g.student_id = ?)";
+    private static final String SQL_ANNOUNCEMENTS_BY_DATE = "SELECT * FROM announcements ORDER BY date DESC";
+    private static final String SQL_ANNOUNCEMENTS_FIRST_PAGE =
+            "SELECT * FROM announcements ORDER BY date DESC, id DESC LIMIT ?";
+    private static final String SQL_ANNOUNCEMENTS_PAGE =
+            "SELECT * FROM announcements WHERE (date, id) < (?, ?) ORDER BY date DESC, id DESC LIMIT ?";
+    private static final String SQL_GRADES_PAGE = "SELECT * FROM grades WHERE id > ? ORDER BY id LIMIT ?";
+    // Best matches first; the rank function (bm25 with the title/name columns weighted up)
+    // is stored in the index by the full-text migration
+    private static final String SQL_SEARCH_ANNOUNCEMENTS =
+            "SELECT a.* FROM announcements_fts f JOIN announcements a ON a.id = f.rowid " +
+            "WHERE announcements_fts MATCH ? ORDER BY f.rank LIMIT ?";
+    private static final String SQL_SEARCH_COURSES =
+            "SELECT c.* FROM courses_fts f JOIN courses c ON c.id = f.rowid " +
+            "WHERE courses_fts MATCH ? ORDER BY f.rank LIMIT ?";
+    private static final String SQL_RESOURCE_REFERENCES =
+            "SELECT content_hash, COUNT(*) FROM courses WHERE content_hash IS NOT NULL GROUP BY content_hash";
+    private static final String SQL_GRADE_STATS =
+            "SELECT s.course_id, c.name AS course_name, s.n, s.total, s.total_sq, b.bin, b.n AS bin_count " +
+            "FROM grade_stats s JOIN grade_stats_bins b ON b.course_id = s.course_id " +
+            "LEFT JOIN courses c ON c.id = s.course_id";
+    private static final String SQL_GRADE_STATS_BY_COURSE = SQL_GRADE_STATS + " WHERE s.course_id = ? ORDER BY b.bin";
+    private static final String SQL_GRADE_STATS_ALL = SQL_GRADE_STATS + " ORDER BY s.course_id, b.bin";
+
+    // Timers for every statement, named table.operation; see QueryMetrics
+    private static final QueryMetrics.Operation USERS_INSERT = QueryMetrics.operation("users.insert");
+    private static final QueryMetrics.Operation USERS_PROVISION = QueryMetrics.operation("users.provision");
+    private static final QueryMetrics.Operation USERS_CREDENTIALS = QueryMetrics.operation("users.credentials");
+    private static final QueryMetrics.Operation USERS_BY_NAME = QueryMetrics.operation("users.byName");
+    private static final QueryMetrics.Operation USERS_UPDATE_HASH = QueryMetrics.operation("users.updateHash");
+    private static final QueryMetrics.Operation COURSES_INSERT = QueryMetrics.operation("courses.insert");
+    private static final QueryMetrics.Operation COURSES_INSERT_BATCH = QueryMetrics.operation("courses.insertBatch");
+    private static final QueryMetrics.Operation COURSES_ALL = QueryMetrics.operation("courses.all");
+    private static final QueryMetrics.Operation COURSES_UPDATE = QueryMetrics.operation("courses.update");
+    private static final QueryMetrics.Operation COURSES_DELETE = QueryMetrics.operation("courses.delete");
+    private static final QueryMetrics.Operation RESOURCES_REFERENCES = QueryMetrics.operation("resources.references");
+    private static final QueryMetrics.Operation SCHEDULE_INSERT = QueryMetrics.operation("schedule.insert");
+    private static final QueryMetrics.Operation SCHEDULE_INSERT_BATCH = QueryMetrics.operation("schedule.insertBatch");
+    private static final QueryMetrics.Operation SCHEDULE_ALL = QueryMetrics.operation("schedule.all");
+    private static final QueryMetrics.Operation SCHEDULE_UPDATE = QueryMetrics.operation("schedule.update");
+    private static final QueryMetrics.Operation SCHEDULE_DELETE = QueryMetrics.operation("schedule.delete");
+    private static final QueryMetrics.Operation SCHEDULE_REPLACE = QueryMetrics.operation("schedule.replace");
+    private static final QueryMetrics.Operation GRADES_INSERT = QueryMetrics.operation("grades.insert");
+    private static final QueryMetrics.Operation GRADES_INSERT_BATCH = QueryMetrics.operation("grades.insertBatch");
+    private static final QueryMetrics.Operation GRADES_IMPORT = QueryMetrics.operation("grades.import");
+    private static final QueryMetrics.Operation GRADES_ALL = QueryMetrics.operation("grades.all");
+    private static final QueryMetrics.Operation GRADES_BY_STUDENT = QueryMetrics.operation("grades.byStudent");
+    private static final QueryMetrics.Operation GRADES_REPORT = QueryMetrics.operation("grades.report");
+    private static final QueryMetrics.Operation GRADES_PAGE = QueryMetrics.operation("grades.page");
+    private static final QueryMetrics.Operation GRADES_COUNT = QueryMetrics.operation("grades.count");
+    private static final QueryMetrics.Operation GRADES_UPDATE = QueryMetrics.operation("grades.update");
+    private static final QueryMetrics.Operation GRADES_DELETE = QueryMetrics.operation("grades.delete");
+    private static final QueryMetrics.Operation GRADES_STATS = QueryMetrics.operation("grades.stats");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_SEARCH = QueryMetrics.operation("announcements.search");
+    private static final QueryMetrics.Operation COURSES_SEARCH = QueryMetrics.operation("courses.search");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_INSERT = QueryMetrics.operation("announcements.insert");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_INSERT_BATCH = QueryMetrics.operation("announcements.insertBatch");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_ALL = QueryMetrics.operation("announcements.all");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_PAGE = QueryMetrics.operation("announcements.page");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_COUNT = QueryMetrics.operation("announcements.count");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_UPDATE = QueryMetrics.operation("announcements.update");
+    private static final QueryMetrics.Operation ANNOUNCEMENTS_DELETE = QueryMetrics.operation("announcements.delete");
+    private static final QueryMetrics.Operation IMPORT_PROGRESS = QueryMetrics.operation("imports.progress");
+    private static final QueryMetrics.Operation VIEW_COUNT = QueryMetrics.operation("view.count");
+    private static final QueryMetrics.Operation VIEW_BLOCK = QueryMetrics.operation("view.block");
+    private static final QueryMetrics.Operation CHECKPOINT = QueryMetrics.operation("db.checkpoint");
+    private static final QueryMetrics.Operation SCHEMA_MIGRATE = QueryMetrics.operation("schema.migrate");
+
+    // Secondary indexes; users.username is already covered by its UNIQUE constraint
+    private static final String[] INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_grades_student ON grades (student_id, course_id)",
+        "CREATE INDEX IF NOT EXISTS idx_grades_course ON grades (course_id)",
+        "CREATE INDEX IF NOT EXISTS idx_courses_name_chapter ON courses (name, chapter)",
+        "CREATE INDEX IF NOT EXISTS idx_schedule_day_room ON schedule (day, room, start_time)",
+        "CREATE INDEX IF NOT EXISTS idx_announcements_date ON announcements (date, id)"
+    };
+
+    // Queries that must be answered from an index, checked by findFullScans().
+    // Updates and deletes go through the integer primary key and the getAll* reads are full scans by design.
+    private static final Map<String, String> INDEXED_QUERIES = new LinkedHashMap<>();
+
+    static {
+        INDEXED_QUERIES.put("users.credentials", SQL_CREDENTIALS_BY_NAME);
+        INDEXED_QUERIES.put("users.byName", SQL_USER_BY_NAME);
+        INDEXED_QUERIES.put("grades.byStudent", SQL_GRADES_BY_STUDENT);
+        INDEXED_QUERIES.put("grades.report", SQL_GRADE_REPORT);
+        INDEXED_QUERIES.put("grades.statsByCourse", SQL_GRADE_STATS_BY_COURSE);
+        INDEXED_QUERIES.put("announcements.byDate", SQL_ANNOUNCEMENTS_BY_DATE);
+        INDEXED_QUERIES.put("announcements.firstPage", SQL_ANNOUNCEMENTS_FIRST_PAGE);
+        INDEXED_QUERIES.put("announcements.page", SQL_ANNOUNCEMENTS_PAGE);
+        INDEXED_QUERIES.put("grades.page", SQL_GRADES_PAGE);
+        INDEXED_QUERIES.put("courses.resourceReferences", SQL_RESOURCE_REFERENCES);
+        for (TableView view : new TableView[]{TableView.COURSES, TableView.SCHEDULE, TableView.GRADES, TableView.ANNOUNCEMENTS}) {
+            INDEXED_QUERIES.put(view.getTable() + ".window", view.windowSql(true));
+        }
+    }
+
+    static {
+        pool.scheduleMaintenance(Database::checkpointIfNeeded, CHECKPOINT_INTERVAL_MS);
+        pool.scheduleMaintenance(QueryMetrics::logSummary, METRICS_INTERVAL_MS);
+        pool.scheduleMaintenance(Database::collectResourceGarbage, STORE_GC_INTERVAL_MS);
+        SlowQueryLog.setExplainer(Database::explainQueryPlan);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Closing database connections: " + pool.getStats());
+            System.out.println("Credential checks: " + credentials.getStats());
+            credentials.shutdown();
+            System.out.println("Course catalog: " + catalog.getStats());
+            QueryMetrics.logSummary();
+            pool.shutdown();
+        }, "db-pool-shutdown"));
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
+    public static CourseCatalog.Stats getCatalogStats() {
+        return catalog.getStats();
+    }
+
+    public static CredentialVerifier.Stats getCredentialStats() {
+        return credentials.getStats();
+    }
+
+    // Cumulative latency, row and error statistics per operation, slowest p99 first
+    public static List<QueryMetrics.OperationStats> getQueryStats() {
+        return QueryMetrics.snapshot();
+    }
+
+    // Operations slower than lms.db.slowQueryMs, oldest first
+    public static List<SlowQueryLog.SlowQuery> getSlowQueries() {
+        return SlowQueryLog.getEntries();
+    }
+
+    public static void dumpSlowQueries(Path file) throws IOException {
+        SlowQueryLog.dump(file);
+    }
+
+    public static void shutdown() {
+        pool.shutdown();
+    }
+
+    public static StorageProfile getStorageProfile() {
+        return STORAGE_PROFILE;
+    }
+
+    // Truncates the WAL once it grows past the profile's limit. Automatic checkpoints
+    // only rewind the file and are starved while readers keep old snapshots open.
+    public static void checkpointIfNeeded() {
+        File wal = new File(DB_PATH + "-wal");
+        if (wal.length() > STORAGE_PROFILE.getWalCheckpointBytes()) {
+            checkpoint();
+        }
+    }
+
+    // Runs EXPLAIN QUERY PLAN for every indexed query and returns a description of each
+    // one that scans a table or sorts in a temp b-tree. An empty list means all plans are good.
+    public static List<String> findFullScans() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (PooledConnection conn = pool.borrow();
+             Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> query : INDEXED_QUERIES.entrySet()) {
+                try (ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + query.getValue())) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        // Scanning a subquery's own output (e.g. to evaluate a window) reads no table
+                        boolean fullScan = detail.startsWith("SCAN") && !detail.startsWith("SCAN (subquery")
+                                && !detail.contains("USING INDEX") && !detail.contains("USING COVERING INDEX");
+                        if (fullScan || detail.contains("USE TEMP B-TREE")) {
+                            problems.add(query.getKey() + ": " + detail + " [" + query.getValue() + "]");
+                        }
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    // EXPLAIN QUERY PLAN for a statement as it is prepared; unbound parameters are fine.
+    // Nested steps are indented under their parent.
+    public static List<String> explainQueryPlan(String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        Map<Integer, Integer> depth = new HashMap<>();
+        try (PooledConnection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                int level = depth.getOrDefault(rs.getInt("parent"), -1) + 1;
+                depth.put(rs.getInt("id"), level);
+                plan.add("  ".repeat(level) + rs.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    public static void checkpoint() {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(TRUNCATE)")) {
+            CHECKPOINT.record(start, 0);
+            if (rs.next() && rs.getInt(1) != 0) {
+                System.out.println("WAL checkpoint was blocked by an active reader; will retry.");
+            }
+        } catch (SQLException e) {
+            CHECKPOINT.recordError(start);
+            System.out.println("Error checkpointing database: " + e.getMessage());
+        }
+    }
+
+    // Copies a result set into a disconnected row set so the pooled connection can be returned
+    private static CachedRowSet detach(ResultSet rs) throws SQLException {
+        try (ResultSet source = rs) {
+            CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+            rowSet.populate(source);
+            return rowSet;
+        }
+    }
+
+    // Binds values to ?1..?n and remembers them, so a slow statement can be logged with
+    // the shapes of its parameters
+    private static void bind(PreparedStatement pstmt, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+        SlowQueryLog.parameters(params);
+    }
+
+    // Streams every row of a query to the consumer, fetching FETCH_SIZE rows at a time.
+    // The result set and connection are always released before returning.
+    private static <T> boolean stream(QueryMetrics.Operation op, String sql, RowMapper<T> mapper, RowConsumer<? super T> consumer, Object... params) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, params);
+            pstmt.setFetchSize(FETCH_SIZE);
+            long rows = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                    rows++;
+                }
+            }
+            op.record(start, rows);
+            return true;
+        } catch (SQLException e) {
+            op.recordError(start);
+            System.out.println("Error streaming rows: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Extra work that must commit or roll back together with a batch
+    private interface TransactionWork {
+        void run(PooledConnection conn) throws SQLException;
+    }
+
+    private static <T> BatchResult writeBatch(QueryMetrics.Operation op, String sql, List<? extends T> rows, int batchSize,
+                                              Function<? super T, String> validator, RowBinder<? super T> binder) {
+        return writeBatch(op, sql, rows, batchSize, validator, binder, null, null);
+    }
+
+    // Reads up to limit rows and one extra to find out whether another page follows
+    private static <T> Page<T> page(QueryMetrics.Operation op, String sql, int limit, RowMapper<T> mapper, Object... params) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        List<T> rows = new ArrayList<>(limit);
+        Object[] args = Arrays.copyOf(params, params.length + 1);
+        args[params.length] = limit + 1;
+        boolean[] hasMore = new boolean[1];
+        stream(op, sql, mapper, row -> {
+            if (rows.size() < limit) {
+                rows.add(row);
+            } else {
+                hasMore[0] = true;
+            }
+        }, args);
+        return new Page<>(rows, hasMore[0]);
+    }
+
+    private static long count(QueryMetrics.Operation op, String table) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            try (ResultSet rs = conn.prepare("SELECT COUNT(*) FROM " + table).executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                op.record(start, 1);
+                return count;
+            }
+        } catch (SQLException e) {
+            op.recordError(start);
+            System.out.println("Error counting " + table + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public static long countRows(TableView view) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(view.countSql());
+            bind(pstmt, view.searchParameters());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                VIEW_COUNT.record(start, 1);
+                return count;
+            }
+        } catch (SQLException e) {
+            VIEW_COUNT.recordError(start);
+            System.out.println("Error counting " + view.getTable() + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Reads up to limit rows of a view, starting after the given key (null for the
+    // beginning of the table) and skipping the first skip rows from there. Throws rather than
+    // returning a short block, since the caller would otherwise cache the gap as real rows.
+    public static RowBlock readBlock(TableView view, Object[] afterKey, int skip, int limit) throws SQLException {
+        RowBlock block = new RowBlock(view, limit);
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(view.windowSql(afterKey != null));
+            Object[] search = view.searchParameters();
+            int keyLength = afterKey == null ? 0 : afterKey.length;
+            Object[] args = Arrays.copyOf(search, search.length + keyLength + 2);
+            if (afterKey != null) {
+                System.arraycopy(afterKey, 0, args, search.length, keyLength);
+            }
+            args[args.length - 2] = limit;
+            args[args.length - 1] = skip;
+            bind(pstmt, args);
+            pstmt.setFetchSize(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    block.append(rs);
+                }
+            }
+            VIEW_BLOCK.record(start, block.size());
+        } catch (SQLException e) {
+            VIEW_BLOCK.recordError(start);
+            System.out.println("Error reading " + view.getTable() + " rows: " + e.getMessage());
+            throw e;
+        }
+        return block;
+    }
+
+    // Inserts all rows in one transaction, sending them to SQLite batchSize rows at a time.
+    // Rows are validated up front; any invalid row or failed insert rolls the whole batch back,
+    // along with the work done before and after the rows in the same transaction.
+    private static <T> BatchResult writeBatch(QueryMetrics.Operation op, String sql, List<? extends T> rows, int batchSize,
+                                              Function<? super T, String> validator, RowBinder<? super T> binder,
+                                              TransactionWork beforeRows, TransactionWork alsoInTransaction) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        List<BatchResult.RowError> errors = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String problem = validator.apply(rows.get(i));
+            if (problem != null) {
+                errors.add(new BatchResult.RowError(i, problem));
+            }
+        }
+        if (!errors.isEmpty() || (rows.isEmpty() && beforeRows == null && alsoInTransaction == null)) {
+            return new BatchResult(rows.size(), 0, errors);
+        }
+
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            Connection raw = conn.getConnection();
+            raw.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepare(sql);
+            int chunkStart = 0;
+            try {
+                if (beforeRows != null) {
+                    beforeRows.run(conn);
+                }
+                for (int i = 0; i < rows.size(); i++) {
+                    binder.bind(pstmt, rows.get(i));
+                    pstmt.addBatch();
+                    if (i - chunkStart + 1 == batchSize || i == rows.size() - 1) {
+                        pstmt.executeBatch();
+                        chunkStart = i + 1;
+                    }
+                }
+                if (alsoInTransaction != null) {
+                    alsoInTransaction.run(conn);
+                }
+                raw.commit();
+                op.record(start, rows.size());
+                return new BatchResult(rows.size(), rows.size(), errors);
+            } catch (BatchUpdateException e) {
+                raw.rollback();
+                pstmt.clearBatch();
+                int failed = e.getUpdateCounts() == null ? -1 : chunkStart + e.getUpdateCounts().length;
+                errors.add(new BatchResult.RowError(failed < rows.size() ? failed : -1, e.getMessage()));
+            } catch (SQLException e) {
+                raw.rollback();
+                pstmt.clearBatch();
+                errors.add(new BatchResult.RowError(-1, e.getMessage()));
+            }
+        } catch (SQLException e) {
+            errors.add(new BatchResult.RowError(-1, e.getMessage()));
+        }
+        op.recordError(start);
+        System.out.println("Error writing batch: " + errors);
+        return new BatchResult(rows.size(), 0, errors);
+    }
+
+    private static String requireFields(String... values) {
+        for (String value : values) {
+            if (value == null || value.trim().isEmpty()) {
+                return "missing required field";
+            }
+        }
+        return null;
+    }
+
+    private static String requireNumbers(String... values) {
+        for (String value : values) {
+            try {
+                Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return "not a number: " + value;
+            }
+        }
+        return null;
+    }
+
     public static void setCurrentUserId(String userId) {
         currentUserId = userId;
     }
@@ -12,10 +504,86 @@ public class Database {
         return currentUserId;
     }
 
+    // Schema history, oldest first. Version n must be at index n - 1; append new steps only.
+    private static final SchemaMigration[] MIGRATIONS = {
+        new SchemaMigration(1, "base tables", Database::createTables),
+        new SchemaMigration(2, "secondary indexes", conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String index : INDEXES) {
+                    stmt.execute(index);
+                }
+            }
+        }),
+        new SchemaMigration(3, "hashed passwords", Database::hashPlaintextPasswords),
+        new SchemaMigration(4, "default users", Database::insertDefaultUsers),
+        new SchemaMigration(5, "per-course grade statistics", Database::createGradeStats),
+        new SchemaMigration(6, "full-text search indexes", Database::createFullTextIndexes),
+        // Rows written before this keep their absolute file_path and a NULL hash until the file is re-saved
+        new SchemaMigration(7, "content-addressed course resources", conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE courses ADD COLUMN content_hash TEXT");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_courses_content_hash ON courses(content_hash)");
+            }
+        })
+    };
+
+    public static int getSchemaVersion() {
+        return MIGRATIONS.length;
+    }
+
+    // Brings the schema up to date. An up-to-date database costs one PRAGMA read;
+    // otherwise each missing step runs in its own transaction on a single connection.
     public static void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement()) {
-            
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            int current = readUserVersion(conn);
+            if (current == MIGRATIONS.length) {
+                SCHEMA_MIGRATE.record(start, 0);
+                return;
+            }
+            if (current > MIGRATIONS.length) {
+                System.out.println("Warning: database schema v" + current + " is newer than this build (v" + MIGRATIONS.length + ").");
+                return;
+            }
+
+            Connection raw = conn.getConnection();
+            for (SchemaMigration migration : MIGRATIONS) {
+                if (migration.getVersion() <= current) {
+                    continue;
+                }
+                long stepStart = System.nanoTime();
+                raw.setAutoCommit(false);
+                try {
+                    migration.apply(conn);
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("PRAGMA user_version = " + migration.getVersion());
+                    }
+                    raw.commit();
+                } catch (SQLException | RuntimeException e) {
+                    raw.rollback();
+                    throw e;
+                } finally {
+                    raw.setAutoCommit(true);
+                }
+                System.out.printf("Applied schema migration %s in %.1f ms%n", migration, (System.nanoTime() - stepStart) / 1e6);
+            }
+            SCHEMA_MIGRATE.record(start, MIGRATIONS.length - current);
+            System.out.println("Database initialized successfully (storage profile " + STORAGE_PROFILE.getName() + ").");
+        } catch (SQLException e) {
+            SCHEMA_MIGRATE.recordError(start);
+            System.out.println("Error initializing database: " + e.getMessage());
+        }
+    }
+
+    private static int readUserVersion(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void createTables(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             // Create users table
             String sql = "CREATE TABLE IF NOT EXISTS users (" +
                          "id INTEGER PRIMARY KEY AUTOINCREMENT," +
@@ -60,348 +628,1164 @@ public class Database {
                  "FOREIGN KEY (student_id) REFERENCES users(id)," +
                  "FOREIGN KEY (course_id) REFERENCES courses(id))";
             stmt.executeUpdate(sql);
-            
-            System.out.println("Database initialized successfully.");
-        } catch (SQLException e) {
-            System.out.println("Error initializing database: " + e.getMessage());
+
+            // Tracks how far each resumable import has committed
+            sql = "CREATE TABLE IF NOT EXISTS import_progress (" +
+                 "import_key TEXT PRIMARY KEY," +
+                 "lines_done INTEGER NOT NULL)";
+            stmt.execute(sql);
+        }
+    }
+
+    private static boolean hasColumn(PooledConnection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Adds password_hash and replaces every plaintext password with a salted hash.
+    // Hashing is spread over all cores; the UPDATEs are then sent in batches.
+    private static void hashPlaintextPasswords(PooledConnection conn) throws SQLException {
+        if (!hasColumn(conn, "users", "password_hash")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE users ADD COLUMN password_hash TEXT");
+            }
+        }
+        List<UserRow> plaintext = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, username, password, user_type FROM users WHERE password_hash IS NULL")) {
+            while (rs.next()) {
+                plaintext.add(UserRow.from(rs));
+            }
+        }
+        List<String> hashes = hashPasswords(plaintext);
+        PreparedStatement pstmt = conn.prepare(SQL_UPDATE_PASSWORD_HASH);
+        for (int i = 0; i < plaintext.size(); i++) {
+            pstmt.setString(1, hashes.get(i));
+            pstmt.setInt(2, plaintext.get(i).getId());
+            pstmt.addBatch();
+            if ((i + 1) % BATCH_SIZE == 0 || i == plaintext.size() - 1) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    private static void insertDefaultUsers(PooledConnection conn) throws SQLException {
+        List<UserRow> defaults = Arrays.asList(
+            new UserRow(0, "admin", "admin123", "admin"),
+            new UserRow(0, "user", "user123", "user"),
+            new UserRow(0, "user2", "user321", "user"));
+        List<String> hashes = hashPasswords(defaults);
+        PreparedStatement pstmt = conn.prepare(SQL_INSERT_USER);
+        for (int i = 0; i < defaults.size(); i++) {
+            pstmt.setString(1, defaults.get(i).getUsername());
+            pstmt.setString(2, hashes.get(i));
+            pstmt.setString(3, defaults.get(i).getUserType());
+            pstmt.addBatch();
         }
+        pstmt.executeBatch();
+    }
+
+    // Per-course count, sum and sum of squares plus a one-point histogram of grades, kept
+    // current by triggers so every write path (single rows, batches, imports) is covered.
+    // Only numeric grades with an integer course id are counted.
+    private static void createGradeStats(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS grade_stats (" +
+                "course_id INTEGER PRIMARY KEY," +
+                "n INTEGER NOT NULL," +
+                "total REAL NOT NULL," +
+                "total_sq REAL NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS grade_stats_bins (" +
+                "course_id INTEGER NOT NULL," +
+                "bin INTEGER NOT NULL," +
+                "n INTEGER NOT NULL," +
+                "PRIMARY KEY (course_id, bin)) WITHOUT ROWID");
+
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS grade_stats_insert AFTER INSERT ON grades" +
+                gradeStatsTrigger("NEW", true));
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS grade_stats_delete AFTER DELETE ON grades" +
+                gradeStatsTrigger("OLD", false));
+            // An update is a delete of the old row and an insert of the new one
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS grade_stats_update_old AFTER UPDATE OF course_id, grade ON grades" +
+                gradeStatsTrigger("OLD", false));
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS grade_stats_update_new AFTER UPDATE OF course_id, grade ON grades" +
+                gradeStatsTrigger("NEW", true));
+
+            // Backfill from the grades already present
+            stmt.execute("DELETE FROM grade_stats");
+            stmt.execute("DELETE FROM grade_stats_bins");
+            String counted = " FROM grades WHERE typeof(course_id) = 'integer' AND typeof(grade) IN ('integer', 'real')";
+            stmt.execute("INSERT INTO grade_stats (course_id, n, total, total_sq) " +
+                "SELECT course_id, COUNT(*), SUM(grade), SUM(grade * grade)" + counted + " GROUP BY course_id");
+            stmt.execute("INSERT INTO grade_stats_bins (course_id, bin, n) " +
+                "SELECT course_id, " + gradeBin("grade") + ", COUNT(*)" + counted + " GROUP BY 1, 2");
+        }
+    }
+
+    // External-content FTS5 indexes over announcement text and course/chapter/lesson names.
+    // They store only the index, not a second copy of the text, and triggers keep them in
+    // step with every write. prefix='2 3' adds prefix indexes so short as-you-type prefixes stay fast.
+    private static void createFullTextIndexes(PooledConnection conn) throws SQLException {
+        createFullTextIndex(conn, "announcements", new String[]{"title", "content"}, "bm25(4.0, 1.0)");
+        createFullTextIndex(conn, "courses", new String[]{"name", "chapter", "lesson"}, "bm25(4.0, 2.0, 1.0)");
+    }
+
+    private static void createFullTextIndex(PooledConnection conn, String table, String[] columns, String rank) throws SQLException {
+        String fts = table + "_fts";
+        String names = String.join(", ", columns);
+        String oldValues = "OLD.id, OLD." + String.join(", OLD.", columns);
+        String newValues = "NEW.id, NEW." + String.join(", NEW.", columns);
+        String remove = "INSERT INTO " + fts + " (" + fts + ", rowid, " + names + ") VALUES ('delete', " + oldValues + "); ";
+        String add = "INSERT INTO " + fts + " (rowid, " + names + ") VALUES (" + newValues + "); ";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS " + fts + " USING fts5(" + names +
+                ", content='" + table + "', content_rowid='id', prefix='2 3')");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_insert AFTER INSERT ON " + table + " BEGIN " + add + "END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_delete AFTER DELETE ON " + table + " BEGIN " + remove + "END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + fts + "_update AFTER UPDATE ON " + table + " BEGIN " + remove + add + "END");
+            stmt.execute("INSERT INTO " + fts + " (" + fts + ") VALUES ('rebuild')");
+            stmt.execute("INSERT INTO " + fts + " (" + fts + ", rank) VALUES ('rank', '" + rank + "')");
+        }
+    }
+
+    private static String gradeBin(String grade) {
+        return "CAST(MIN(MAX(" + grade + ", 0), " + (GradeStats.BINS - 1) + ") AS INTEGER)";
     }
 
+    // Trigger body adding (or removing) the NEW (or OLD) row's grade
+    private static String gradeStatsTrigger(String row, boolean add) {
+        String course = row + ".course_id";
+        String grade = row + ".grade";
+        String bin = gradeBin(grade);
+        String when = " WHEN typeof(" + course + ") = 'integer' AND typeof(" + grade + ") IN ('integer', 'real') BEGIN ";
+        if (add) {
+            return when +
+                "INSERT INTO grade_stats (course_id, n, total, total_sq) VALUES (" + course + ", 1, " + grade + ", " + grade + " * " + grade + ") " +
+                "ON CONFLICT (course_id) DO UPDATE SET n = n + 1, total = total + excluded.total, total_sq = total_sq + excluded.total_sq; " +
+                "INSERT INTO grade_stats_bins (course_id, bin, n) VALUES (" + course + ", " + bin + ", 1) " +
+                "ON CONFLICT (course_id, bin) DO UPDATE SET n = n + 1; " +
+                "END";
+        }
+        return when +
+            "UPDATE grade_stats SET n = n - 1, total = total - " + grade + ", total_sq = total_sq - " + grade + " * " + grade +
+            " WHERE course_id = " + course + "; " +
+            "DELETE FROM grade_stats WHERE course_id = " + course + " AND n <= 0; " +
+            "UPDATE grade_stats_bins SET n = n - 1 WHERE course_id = " + course + " AND bin = " + bin + "; " +
+            "DELETE FROM grade_stats_bins WHERE course_id = " + course + " AND bin = " + bin + " AND n <= 0; " +
+            "END";
+    }
+
+    // PBKDF2 is deliberately slow, so bulk hashing is spread over the credential pool
+    private static List<String> hashPasswords(List<UserRow> users) throws SQLException {
+        try {
+            return credentials.hashAll(users.stream().map(UserRow::getPassword).collect(Collectors.toList()));
+        } catch (IllegalStateException e) {
+            throw new SQLException("Could not hash passwords: " + e.getMessage(), e);
+        }
+    }
+
+    // A single INSERT ... ON CONFLICT, so two admins adding the same name cannot race
     public static boolean addUser(String username, String password, String userType) {
-        if (userExists(username)) {
-            System.out.println("User " + username + " already exists.");
+        // Hashed before borrowing so a slow hash never holds a pooled connection
+        String hash;
+        try {
+            hash = credentials.hash(password);
+        } catch (IllegalStateException e) {
+            System.out.println("Error adding user: " + e.getMessage());
             return false;
         }
-    
-        String sql = "INSERT INTO users (username, password, user_type) VALUES (?, ?, ?)";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(SQL_INSERT_USER);
             
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            pstmt.setString(3, userType);
-            pstmt.executeUpdate();
+            bind(pstmt, username, hash, userType);
+            int created = pstmt.executeUpdate();
+            USERS_INSERT.record(start, created);
+            if (created == 0) {
+                System.out.println("User " + username + " already exists.");
+                return false;
+            }
             
             System.out.println("User " + username + " added successfully.");
             return true;
         } catch (SQLException e) {
+            USERS_INSERT.recordError(start);
             System.out.println("Error adding user: " + e.getMessage());
             return false;
         }
     }
 
+    static String validateUser(UserRow u) {
+        String missing = requireFields(u.getUsername(), u.getPassword(), u.getUserType());
+        if (missing != null) {
+            return missing;
+        }
+        if (!u.getUserType().equals("admin") && !u.getUserType().equals("user")) {
+            return "unknown user type: " + u.getUserType();
+        }
+        return null;
+    }
+
+    public static ProvisionResult provisionUsers(List<UserRow> users) {
+        return provisionUsers(users, BATCH_SIZE);
+    }
+
+    // Creates the valid users in one transaction, sending batchSize inserts at a time.
+    // Taken usernames (including repeats within the list) are skipped by ON CONFLICT rather
+    // than looked up first. Invalid rows fail on their own without stopping the rest.
+    public static ProvisionResult provisionUsers(List<UserRow> users, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        List<BatchResult.RowError> errors = new ArrayList<>();
+        List<UserRow> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            String problem = validateUser(users.get(i));
+            if (problem != null) {
+                errors.add(new BatchResult.RowError(i, problem));
+            } else {
+                valid.add(users.get(i));
+            }
+        }
+        if (valid.isEmpty()) {
+            return new ProvisionResult(users.size(), 0, 0, errors);
+        }
+        List<String> hashes;
+        try {
+            hashes = hashPasswords(valid);
+        } catch (SQLException e) {
+            errors.add(new BatchResult.RowError(-1, e.getMessage()));
+            System.out.println("Error provisioning users: " + errors);
+            return new ProvisionResult(users.size(), 0, 0, errors);
+        }
+
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            Connection raw = conn.getConnection();
+            raw.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepare(SQL_INSERT_USER);
+            try {
+                // Update counts from a batch are driver dependent; the connection's change
+                // counter tells exactly how many rows were inserted
+                long before = totalChanges(conn);
+                for (int i = 0; i < valid.size(); i++) {
+                    UserRow u = valid.get(i);
+                    pstmt.setString(1, u.getUsername());
+                    pstmt.setString(2, hashes.get(i));
+                    pstmt.setString(3, u.getUserType());
+                    pstmt.addBatch();
+                    if ((i + 1) % batchSize == 0 || i == valid.size() - 1) {
+                        pstmt.executeBatch();
+                    }
+                }
+                int created = (int) (totalChanges(conn) - before);
+                raw.commit();
+                USERS_PROVISION.record(start, valid.size());
+                return new ProvisionResult(users.size(), created, valid.size() - created, errors);
+            } catch (SQLException e) {
+                raw.rollback();
+                pstmt.clearBatch();
+                errors.add(new BatchResult.RowError(-1, "rolled back " + valid.size() + " user(s): " + e.getMessage()));
+            }
+        } catch (SQLException e) {
+            errors.add(new BatchResult.RowError(-1, e.getMessage()));
+        }
+        USERS_PROVISION.recordError(start);
+        System.out.println("Error provisioning users: " + errors);
+        return new ProvisionResult(users.size(), 0, 0, errors);
+    }
+
+    private static long totalChanges(PooledConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT total_changes()").executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
     public static ResultSet getUser(String username, String password) {
-        String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
+        if (findUserId(username, password) == null) {
+            return null;
+        }
         
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            return pstmt.executeQuery();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(SQL_USER_BY_NAME);
+            bind(pstmt, username);
+            CachedRowSet rows = detach(pstmt.executeQuery());
+            USERS_BY_NAME.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            USERS_BY_NAME.recordError(start);
             System.out.println("Error getting user: " + e.getMessage());
             return null;
         }
     }
 
     public static boolean authenticateUser(String username, String password) {
-        String sql = "SELECT id FROM users WHERE username = ? AND password = ?";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            ResultSet rs = pstmt.executeQuery();
+        String userId = findUserId(username, password);
+        if (userId == null) {
+            return false;
+        }
+        setCurrentUserId(userId);
+        return true;
+    }
+
+    // Returns the user's id if the password is right. The row is read first and the
+    // connection returned before the slow hash check runs on the credential pool.
+    private static String findUserId(String username, String password) {
+        String userId = null;
+        String plaintext = null;
+        String stored = null;
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(SQL_CREDENTIALS_BY_NAME);
             
-            if (rs.next()) {
-                String userId = rs.getString("id");
-                setCurrentUserId(userId);
-                return true;
-            } else {
-                return false;
+            bind(pstmt, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    userId = rs.getString("id");
+                    plaintext = rs.getString("password");
+                    stored = rs.getString("password_hash");
+                }
             }
+            USERS_CREDENTIALS.record(start, userId == null ? 0 : 1);
         } catch (SQLException e) {
+            USERS_CREDENTIALS.recordError(start);
             System.out.println("Error authenticating user: " + e.getMessage());
-            return false;
+            return null;
+        }
+
+        boolean valid;
+        try {
+            if (userId == null) {
+                valid = credentials.verifyUnknownUser(password);
+            } else if (stored == null) {
+                // Not migrated yet
+                valid = MessageDigest.isEqual(plaintext.getBytes(StandardCharsets.UTF_8),
+                        password.getBytes(StandardCharsets.UTF_8));
+            } else {
+                valid = credentials.verify(password, stored);
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("Error authenticating user: " + e.getMessage());
+            return null;
+        }
+        if (!valid) {
+            return null;
+        }
+        if (stored == null || credentials.needsRehash(stored)) {
+            storePasswordHash(userId, password);
+        }
+        return userId;
+    }
+
+    private static void storePasswordHash(String userId, String password) {
+        String hash;
+        try {
+            hash = credentials.hash(password);
+        } catch (IllegalStateException e) {
+            // The login still succeeds; the hash is upgraded on a later one
+            System.out.println("Error updating password hash: " + e.getMessage());
+            return;
+        }
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(SQL_UPDATE_PASSWORD_HASH);
+            bind(pstmt, hash, userId);
+            USERS_UPDATE_HASH.record(start, pstmt.executeUpdate());
+        } catch (SQLException e) {
+            USERS_UPDATE_HASH.recordError(start);
+            System.out.println("Error updating password hash: " + e.getMessage());
         }
     }
 
     public static boolean userExists(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
+        String sql = SQL_USER_BY_NAME;
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            
-            return rs.next(); // If there's a matching user, return true
+            bind(pstmt, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean exists = rs.next(); // If there's a matching user, return true
+                USERS_BY_NAME.record(start, exists ? 1 : 0);
+                return exists;
+            }
         } catch (SQLException e) {
+            USERS_BY_NAME.recordError(start);
             System.out.println("Error checking if user exists: " + e.getMessage());
             return false;
         }
     }
 
-    // Add this method to initialize default users
+    // Default users are created by schema migration v4; kept for callers that expect it
     public static void initializeDefaultUsers() {
-        if (!userExists("admin")) {
-            addUser("admin", "admin123", "admin");
-        }
-        if (!userExists("user")) {
-            addUser("user", "user123", "user");
-        }
-        if (!userExists("user2")) {
-            addUser("user2", "user321", "user");
-        }
+        initializeDatabase();
     }
 
-    // In Database.java
-    public static void addCourse(String name, String chapter, String lesson, String resourceType, String filePath) {
-        String sql = "INSERT INTO courses (name, chapter, lesson, resource_type, file_path) VALUES (?, ?, ?, ?, ?)";
+    // Copies the file at filePath into the resource store; the row keeps its name and content
+    // hash rather than the path. Returns false if the file could not be stored or the row written.
+    public static boolean addCourse(String name, String chapter, String lesson, String resourceType, String filePath) {
+        String sql = "INSERT INTO courses (name, chapter, lesson, resource_type, file_path, content_hash) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, name);
-            pstmt.setString(2, chapter);
-            pstmt.setString(3, lesson);
-            pstmt.setString(4, resourceType);
-            pstmt.setString(5, filePath);
-            pstmt.executeUpdate();
+        CourseRow stored;
+        try {
+            stored = storeResource(new CourseRow(0, name, chapter, lesson, resourceType, filePath));
+        } catch (IOException e) {
+            System.out.println("Error adding course: " + e.getMessage());
+            return false;
+        }
+        long start = System.nanoTime();
+        int id;
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            System.out.println("Course added successfully.");
+            bind(pstmt, name, chapter, lesson, resourceType, stored.getFilePath(), stored.getContentHash());
+            COURSES_INSERT.record(start, pstmt.executeUpdate());
+            try (ResultSet rs = conn.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                id = rs.next() ? rs.getInt(1) : 0;
+            }
         } catch (SQLException e) {
+            COURSES_INSERT.recordError(start);
             System.out.println("Error adding course: " + e.getMessage());
+            return false;
+        }
+        // The catalog is patched after the connection is back in the pool
+        if (id > 0) {
+            catalog.put(stored.withId(id));
+        } else {
+            catalog.invalidateAll();
+        }
+        
+        System.out.println("Course added successfully.");
+        return true;
+    }
+
+    // The row with its file copied into the resource store: file_path becomes the file's
+    // name and content_hash its SHA-256
+    private static CourseRow storeResource(CourseRow course) throws IOException {
+        Path source = Paths.get(course.getFilePath());
+        if (!source.isAbsolute() || !Files.isRegularFile(source)) {
+            throw new IOException("Resource file not found: " + course.getFilePath());
+        }
+        ResourceStore.Blob blob = resources.put(source);
+        return new CourseRow(course.getId(), course.getName(), course.getChapter(), course.getLesson(),
+                course.getResourceType(), source.getFileName().toString(), blob.hash);
+    }
+
+    // Where a course's file can be read from: its blob in the store, or for rows that predate
+    // the store, the path they were saved with. Null if the file is missing.
+    public static Path resolveResource(CourseRow course) {
+        Path path;
+        if (course.getContentHash() != null) {
+            path = resources.contains(course.getContentHash()) ? resources.pathOf(course.getContentHash()) : null;
+        } else {
+            path = course.getFilePath() == null ? null : Paths.get(course.getFilePath());
+        }
+        return path != null && Files.isRegularFile(path) ? path : null;
+    }
+
+    private static Map<String, Long> resourceReferences() throws SQLException {
+        Map<String, Long> references = new HashMap<>();
+        boolean ok = stream(RESOURCES_REFERENCES, SQL_RESOURCE_REFERENCES,
+            rs -> new Object[]{rs.getString(1), rs.getLong(2)},
+            row -> references.put((String) row[0], (Long) row[1]));
+        if (!ok) {
+            throw new SQLException("Could not read resource references");
+        }
+        return references;
+    }
+
+    // Deletes stored files no course refers to any more; runs periodically in the background
+    public static ResourceStore.CollectResult collectResourceGarbage() {
+        try {
+            ResourceStore.CollectResult result = resources.collectGarbage(resourceReferences().keySet());
+            if (result.deleted > 0) {
+                System.out.println("Resource store garbage collection: " + result);
+            }
+            return result;
+        } catch (SQLException | IOException e) {
+            System.out.println("Error collecting unreferenced resources: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Store size and the bytes saved by sharing identical files between courses; null on error
+    public static ResourceStore.Stats getResourceStoreStats() {
+        try {
+            return resources.getStats(resourceReferences());
+        } catch (SQLException | IOException e) {
+            System.out.println("Error reading resource store statistics: " + e.getMessage());
+            return null;
         }
     }
 
+    public static BatchResult addCourses(List<CourseRow> courses) {
+        return addCourses(courses, BATCH_SIZE);
+    }
+
+    // Files are stored before the transaction starts; if the batch is rolled back their blobs
+    // are left unreferenced and the garbage collector removes them
+    public static BatchResult addCourses(List<CourseRow> courses, int batchSize) {
+        String sql = "INSERT INTO courses (name, chapter, lesson, resource_type, file_path, content_hash) VALUES (?, ?, ?, ?, ?, ?)";
+        List<CourseRow> stored = new ArrayList<>(courses.size());
+        Map<CourseRow, String> problems = new IdentityHashMap<>();
+        for (CourseRow c : courses) {
+            if (requireFields(c.getName(), c.getChapter(), c.getLesson(), c.getResourceType(), c.getFilePath()) != null) {
+                stored.add(c);
+                continue;
+            }
+            try {
+                stored.add(storeResource(c));
+            } catch (IOException e) {
+                stored.add(c);
+                problems.put(c, e.getMessage());
+            }
+        }
+        BatchResult result = writeBatch(COURSES_INSERT_BATCH, sql, stored, batchSize,
+            c -> {
+                String missing = requireFields(c.getName(), c.getChapter(), c.getLesson(), c.getResourceType(), c.getFilePath());
+                return missing != null ? missing : problems.get(c);
+            },
+            (pstmt, c) -> {
+                pstmt.setString(1, c.getName());
+                pstmt.setString(2, c.getChapter());
+                pstmt.setString(3, c.getLesson());
+                pstmt.setString(4, c.getResourceType());
+                pstmt.setString(5, c.getFilePath());
+                pstmt.setString(6, c.getContentHash());
+            });
+        if (result.getWritten() > 0) {
+            catalog.invalidateAll();
+        }
+        return result;
+    }
+
     public static ResultSet getAllCourses() {
         String sql = "SELECT * FROM courses";
         
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            Statement stmt = conn.createStatement();
-            return stmt.executeQuery(sql);
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            CachedRowSet rows = detach(conn.prepare(sql).executeQuery());
+            COURSES_ALL.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            COURSES_ALL.recordError(start);
             System.out.println("Error getting courses: " + e.getMessage());
             return null;
         }
     }
 
-    public static void updateCourse(int id, String name, String chapter, String lesson, String resourceType, String filePath) {
-        String sql = "UPDATE courses SET name = ?, chapter = ?, lesson = ?, resource_type = ?, file_path = ? WHERE id = ?";
+    public static boolean forEachCourse(RowConsumer<? super CourseRow> consumer) {
+        return stream(COURSES_ALL, "SELECT * FROM courses", CourseRow::from, consumer);
+    }
+
+    // Cached view of the whole catalog; null if it could not be loaded
+    public static CourseCatalog.Snapshot getCourseCatalog() {
+        try {
+            return catalog.get();
+        } catch (SQLException e) {
+            System.out.println("Error loading course catalog: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<CourseRow> loadCourses() throws SQLException {
+        List<CourseRow> courses = new ArrayList<>();
+        if (!forEachCourse(courses::add)) {
+            throw new SQLException("Could not read courses");
+        }
+        return courses;
+    }
+
+    // A filePath naming an existing file (absolute, as the file chooser returns) replaces the
+    // course's stored file; anything else is taken as a new display name and the stored
+    // content is kept. Returns false on error.
+    public static boolean updateCourse(int id, String name, String chapter, String lesson, String resourceType, String filePath) {
+        Path source = filePath == null ? null : Paths.get(filePath);
+        boolean newFile = source != null && source.isAbsolute() && Files.isRegularFile(source);
+        CourseRow updated = new CourseRow(id, name, chapter, lesson, resourceType, filePath);
+        if (newFile) {
+            try {
+                updated = storeResource(updated);
+            } catch (IOException e) {
+                System.out.println("Error updating course: " + e.getMessage());
+                return false;
+            }
+        }
+        String sql = newFile
+            ? "UPDATE courses SET name = ?, chapter = ?, lesson = ?, resource_type = ?, file_path = ?, content_hash = ? WHERE id = ?"
+            : "UPDATE courses SET name = ?, chapter = ?, lesson = ?, resource_type = ?, file_path = ? WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, name);
-            pstmt.setString(2, chapter);
-            pstmt.setString(3, lesson);
-            pstmt.setString(4, resourceType);
-            pstmt.setString(5, filePath);
-            pstmt.setInt(6, id);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        int changed;
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            System.out.println("Course updated successfully.");
+            if (newFile) {
+                bind(pstmt, name, chapter, lesson, resourceType, updated.getFilePath(), updated.getContentHash(), id);
+            } else {
+                bind(pstmt, name, chapter, lesson, resourceType, filePath, id);
+            }
+            changed = pstmt.executeUpdate();
+            COURSES_UPDATE.record(start, changed);
+            if (changed > 0 && !newFile) {
+                PreparedStatement hash = conn.prepare("SELECT content_hash FROM courses WHERE id = ?");
+                bind(hash, id);
+                try (ResultSet rs = hash.executeQuery()) {
+                    updated = updated.withContentHash(rs.next() ? rs.getString(1) : null);
+                }
+            }
         } catch (SQLException e) {
+            COURSES_UPDATE.recordError(start);
             System.out.println("Error updating course: " + e.getMessage());
+            return false;
         }
+        if (changed > 0) {
+            catalog.put(updated);
+        }
+        
+        System.out.println("Course updated successfully.");
+        return true;
     }
 
     public static void deleteCourse(int id) {
         String sql = "DELETE FROM courses WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        int changed;
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            System.out.println("Course deleted successfully.");
+            bind(pstmt, id);
+            changed = pstmt.executeUpdate();
+            COURSES_DELETE.record(start, changed);
         } catch (SQLException e) {
+            COURSES_DELETE.recordError(start);
             System.out.println("Error deleting course: " + e.getMessage());
+            return;
+        }
+        if (changed > 0) {
+            catalog.remove(id);
+        }
+        
+        System.out.println("Course deleted successfully.");
+    }
+
+    public static boolean rejectsScheduleConflicts() {
+        return REJECT_SCHEDULE_CONFLICTS;
+    }
+
+    // Bookings of the same room and day that overlap the given one (excluding its own id);
+    // null if the timetable could not be loaded
+    public static List<ScheduleRow> findScheduleConflicts(ScheduleRow schedule) {
+        try {
+            return timetable.find(schedule);
+        } catch (SQLException e) {
+            System.out.println("Error checking schedule conflicts: " + e.getMessage());
+            return null;
         }
     }
 
-    public static void addSchedule(String course, String day, String startTime, String endTime, String room) {
+    // Returns the bookings the new one overlaps, empty if there were none. With the reject
+    // policy a non-empty result means nothing was written. Null on error.
+    public static List<ScheduleRow> addSchedule(String course, String day, String startTime, String endTime, String room) {
         String sql = "INSERT INTO schedule(course, day, start_time, end_time, room) VALUES(?,?,?,?,?)";
     
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-    
-            pstmt.setString(1, course);
-            pstmt.setString(2, day);
-            pstmt.setString(3, startTime);
-            pstmt.setString(4, endTime);
-            pstmt.setString(5, room);
-            pstmt.executeUpdate();
+        // Check and write under the timetable lock so two admins cannot book the same slot at once
+        synchronized (timetable) {
+            List<ScheduleRow> conflicts = findScheduleConflicts(new ScheduleRow(0, course, day, startTime, endTime, room));
+            if (conflicts == null || (REJECT_SCHEDULE_CONFLICTS && !conflicts.isEmpty())) {
+                return conflicts;
+            }
+            long start = System.nanoTime();
+            try (PooledConnection conn = pool.borrow()) {
+                PreparedStatement pstmt = conn.prepare(sql);
     
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+                bind(pstmt, course, day, startTime, endTime, room);
+                SCHEDULE_INSERT.record(start, pstmt.executeUpdate());
+                try (ResultSet rs = conn.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                    if (rs.next()) {
+                        timetable.put(new ScheduleRow(rs.getInt(1), course, day, startTime, endTime, room));
+                    } else {
+                        timetable.invalidateAll();
+                    }
+                }
+                return conflicts;
+            } catch (SQLException e) {
+                SCHEDULE_INSERT.recordError(start);
+                System.out.println(e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    public static BatchResult addSchedules(List<ScheduleRow> schedules) {
+        return addSchedules(schedules, BATCH_SIZE);
+    }
+
+    public static BatchResult addSchedules(List<ScheduleRow> schedules, int batchSize) {
+        String sql = "INSERT INTO schedule(course, day, start_time, end_time, room) VALUES(?,?,?,?,?)";
+        synchronized (timetable) {
+            Map<ScheduleRow, String> problems;
+            try {
+                problems = timetable.checkBatch(schedules, REJECT_SCHEDULE_CONFLICTS, REJECT_SCHEDULE_CONFLICTS);
+            } catch (SQLException e) {
+                System.out.println("Error checking schedule conflicts: " + e.getMessage());
+                return new BatchResult(schedules.size(), 0,
+                        Arrays.asList(new BatchResult.RowError(-1, "could not check for conflicts: " + e.getMessage())));
+            }
+            BatchResult result = writeBatch(SCHEDULE_INSERT_BATCH, sql, schedules, batchSize,
+                r -> {
+                    String missing = requireFields(r.getCourse(), r.getDay(), r.getStartTime(), r.getEndTime(), r.getRoom());
+                    return missing != null ? missing : problems.get(r);
+                },
+                Database::bindSchedule);
+            if (result.getWritten() > 0) {
+                timetable.invalidateAll();
+            }
+            return result;
         }
     }
 
+    // Swaps the whole timetable for the given rows in one transaction, e.g. a generated one.
+    // Rows must not overlap each other; nothing changes unless all of them are written.
+    public static BatchResult replaceSchedules(List<ScheduleRow> schedules) {
+        String sql = "INSERT INTO schedule(course, day, start_time, end_time, room) VALUES(?,?,?,?,?)";
+        synchronized (timetable) {
+            Map<ScheduleRow, String> problems;
+            try {
+                problems = timetable.checkBatch(schedules, false, true);
+            } catch (SQLException e) {
+                return new BatchResult(schedules.size(), 0,
+                        Arrays.asList(new BatchResult.RowError(-1, "could not check for conflicts: " + e.getMessage())));
+            }
+            BatchResult result = writeBatch(SCHEDULE_REPLACE, sql, schedules, BATCH_SIZE,
+                r -> {
+                    String missing = requireFields(r.getCourse(), r.getDay(), r.getStartTime(), r.getEndTime(), r.getRoom());
+                    return missing != null ? missing : problems.get(r);
+                },
+                Database::bindSchedule,
+                conn -> conn.prepare("DELETE FROM schedule").executeUpdate(),
+                null);
+            if (result.isCommitted()) {
+                timetable.invalidateAll();
+            }
+            return result;
+        }
+    }
+
+    private static void bindSchedule(PreparedStatement pstmt, ScheduleRow r) throws SQLException {
+        pstmt.setString(1, r.getCourse());
+        pstmt.setString(2, r.getDay());
+        pstmt.setString(3, r.getStartTime());
+        pstmt.setString(4, r.getEndTime());
+        pstmt.setString(5, r.getRoom());
+    }
+
     public static ResultSet getAllSchedules() {
         String sql = "SELECT * FROM schedule";
         
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            Statement stmt = conn.createStatement();
-            return stmt.executeQuery(sql);
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            CachedRowSet rows = detach(conn.prepare(sql).executeQuery());
+            SCHEDULE_ALL.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            SCHEDULE_ALL.recordError(start);
             System.out.println("Error getting schedules: " + e.getMessage());
             return null;
         }
     }
 
-    public static void updateSchedule(int id, String course, String day, String startTime, String endTime, String room) {
+    public static boolean forEachSchedule(RowConsumer<? super ScheduleRow> consumer) {
+        return stream(SCHEDULE_ALL, "SELECT * FROM schedule", ScheduleRow::from, consumer);
+    }
+
+    private static List<ScheduleRow> loadSchedules() throws SQLException {
+        List<ScheduleRow> schedules = new ArrayList<>();
+        if (!forEachSchedule(schedules::add)) {
+            throw new SQLException("Could not read schedules");
+        }
+        return schedules;
+    }
+
+    // Rereads the timetable and reports every double-booked room; null if it could not be read
+    public static ScheduleConflicts.Report validateTimetable() {
+        try {
+            return timetable.validateAll();
+        } catch (SQLException e) {
+            System.out.println("Error validating timetable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Same contract as addSchedule; the booking being moved never conflicts with itself
+    public static List<ScheduleRow> updateSchedule(int id, String course, String day, String startTime, String endTime, String room) {
         String sql = "UPDATE schedule SET course = ?, day = ?, start_time = ?, end_time = ?, room = ? WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, course);
-            pstmt.setString(2, day);
-            pstmt.setString(3, startTime);
-            pstmt.setString(4, endTime);
-            pstmt.setString(5, room);
-            pstmt.setInt(6, id);
-            pstmt.executeUpdate();
-            
-            System.out.println("Schedule updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Error updating schedule: " + e.getMessage());
+        synchronized (timetable) {
+            ScheduleRow updated = new ScheduleRow(id, course, day, startTime, endTime, room);
+            List<ScheduleRow> conflicts = findScheduleConflicts(updated);
+            if (conflicts == null || (REJECT_SCHEDULE_CONFLICTS && !conflicts.isEmpty())) {
+                return conflicts;
+            }
+            long start = System.nanoTime();
+            try (PooledConnection conn = pool.borrow()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                
+                bind(pstmt, course, day, startTime, endTime, room, id);
+                int changed = pstmt.executeUpdate();
+                SCHEDULE_UPDATE.record(start, changed);
+                if (changed > 0) {
+                    timetable.put(updated);
+                }
+                
+                System.out.println("Schedule updated successfully.");
+                return conflicts;
+            } catch (SQLException e) {
+                SCHEDULE_UPDATE.recordError(start);
+                System.out.println("Error updating schedule: " + e.getMessage());
+                return null;
+            }
         }
     }
     
     public static void deleteSchedule(int id) {
         String sql = "DELETE FROM schedule WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+            bind(pstmt, id);
+            int changed = pstmt.executeUpdate();
+            SCHEDULE_DELETE.record(start, changed);
+            if (changed > 0) {
+                timetable.remove(id);
+            }
             
             System.out.println("Schedule deleted successfully.");
         } catch (SQLException e) {
+            SCHEDULE_DELETE.recordError(start);
             System.out.println("Error deleting schedule: " + e.getMessage());
         }
     }
     
     public static void addGrade(String studentId, String courseId, String grade) {
         String sql = "INSERT INTO grades (student_id, course_id, grade) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, studentId);
-            pstmt.setString(2, courseId);
-            pstmt.setString(3, grade);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, studentId, courseId, grade);
+            GRADES_INSERT.record(start, pstmt.executeUpdate());
         } catch (SQLException e) {
+            GRADES_INSERT.recordError(start);
             e.printStackTrace();
         }
     }
+
+    static String validateGrade(GradeRow g) {
+        String missing = requireFields(g.getStudentId(), g.getCourseId(), g.getGrade());
+        return missing != null ? missing : requireNumbers(g.getStudentId(), g.getCourseId(), g.getGrade());
+    }
+
+    private static void bindGrade(PreparedStatement pstmt, GradeRow g) throws SQLException {
+        pstmt.setString(1, g.getStudentId());
+        pstmt.setString(2, g.getCourseId());
+        pstmt.setString(3, g.getGrade());
+    }
+
+    public static BatchResult addGrades(List<GradeRow> grades) {
+        return addGrades(grades, BATCH_SIZE);
+    }
+
+    public static BatchResult addGrades(List<GradeRow> grades, int batchSize) {
+        String sql = "INSERT INTO grades (student_id, course_id, grade) VALUES (?, ?, ?)";
+        return writeBatch(GRADES_INSERT_BATCH, sql, grades, batchSize, Database::validateGrade, Database::bindGrade);
+    }
+
+    // Writes one chunk of an import and records that lines up to lineNumber are done,
+    // in the same transaction, so a resumed import never inserts a row twice.
+    public static BatchResult importGrades(String importKey, long lineNumber, List<GradeRow> grades) {
+        String sql = "INSERT INTO grades (student_id, course_id, grade) VALUES (?, ?, ?)";
+        return writeBatch(GRADES_IMPORT, sql, grades, BATCH_SIZE,
+            Database::validateGrade, Database::bindGrade, null,
+            conn -> {
+                PreparedStatement pstmt = conn.prepare(
+                    "INSERT INTO import_progress (import_key, lines_done) VALUES (?, ?) " +
+                    "ON CONFLICT(import_key) DO UPDATE SET lines_done = excluded.lines_done");
+                pstmt.setString(1, importKey);
+                pstmt.setLong(2, lineNumber);
+                pstmt.executeUpdate();
+            });
+    }
+
+    public static long getImportProgress(String importKey) {
+        String sql = "SELECT lines_done FROM import_progress WHERE import_key = ?";
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, importKey);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long done = rs.next() ? rs.getLong(1) : 0;
+                IMPORT_PROGRESS.record(start, 1);
+                return done;
+            }
+        } catch (SQLException e) {
+            IMPORT_PROGRESS.recordError(start);
+            System.out.println("Error reading import progress: " + e.getMessage());
+            return 0;
+        }
+    }
     
     public static void updateGrade(int id, String studentId, String courseId, String grade) {
         String sql = "UPDATE grades SET student_id = ?, course_id = ?, grade = ? WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, studentId);
-            pstmt.setString(2, courseId);
-            pstmt.setString(3, grade);
-            pstmt.setInt(4, id);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, studentId, courseId, grade, id);
+            GRADES_UPDATE.record(start, pstmt.executeUpdate());
         } catch (SQLException e) {
+            GRADES_UPDATE.recordError(start);
             e.printStackTrace();
         }
     }
     
     public static void deleteGrade(int id) {
         String sql = "DELETE FROM grades WHERE id = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, id);
+            GRADES_DELETE.record(start, pstmt.executeUpdate());
         } catch (SQLException e) {
+            GRADES_DELETE.recordError(start);
             e.printStackTrace();
         }
     }
     
     public static ResultSet getAllGrades() {
         String sql = "SELECT * FROM grades";
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            return pstmt.executeQuery();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            CachedRowSet rows = detach(pstmt.executeQuery());
+            GRADES_ALL.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            GRADES_ALL.recordError(start);
             e.printStackTrace();
             return null;
         }
     }
+
+    public static boolean forEachGrade(RowConsumer<? super GradeRow> consumer) {
+        return stream(GRADES_ALL, "SELECT * FROM grades", GradeRow::from, consumer);
+    }
+
+    // Grades in id order. Pass afterId = 0 for the first page, then the id of the last row seen.
+    public static Page<GradeRow> getGradesPage(int afterId, int limit) {
+        return page(GRADES_PAGE, SQL_GRADES_PAGE, limit, GradeRow::from, afterId);
+    }
+
+    public static long countGrades() {
+        return count(GRADES_COUNT, "grades");
+    }
     
 
     public static ResultSet getGradesForCurrentUser() {
         if (currentUserId == null) {
             throw new IllegalStateException("Current user ID is not set");
         }
-        String sql = "SELECT * FROM grades WHERE student_id = ?";
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, currentUserId);
-            return pstmt.executeQuery();
+        String sql = SQL_GRADES_BY_STUDENT;
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, currentUserId);
+            CachedRowSet rows = detach(pstmt.executeQuery());
+            GRADES_BY_STUDENT.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            GRADES_BY_STUDENT.recordError(start);
             e.printStackTrace();
             return null;
         }
     }
 
+    public static boolean forEachGradeForCurrentUser(RowConsumer<? super GradeRow> consumer) {
+        if (currentUserId == null) {
+            throw new IllegalStateException("Current user ID is not set");
+        }
+        return stream(GRADES_BY_STUDENT, SQL_GRADES_BY_STUDENT, GradeRow::from, consumer, currentUserId);
+    }
+
+    // Announcements whose title or content contain every word of the text as a word prefix,
+    // best match first. Empty if the text has no words; null on error.
+    public static List<AnnouncementRow> searchAnnouncements(String text, int limit) {
+        return search(ANNOUNCEMENTS_SEARCH, SQL_SEARCH_ANNOUNCEMENTS, text, limit, AnnouncementRow::from);
+    }
+
+    // Lessons whose course, chapter or lesson name contain every word of the text as a word prefix
+    public static List<CourseRow> searchCourses(String text, int limit) {
+        return search(COURSES_SEARCH, SQL_SEARCH_COURSES, text, limit, CourseRow::from);
+    }
+
+    private static <T> List<T> search(QueryMetrics.Operation op, String sql, String text, int limit, RowMapper<T> mapper) {
+        String query = TableView.fullTextQuery(text);
+        List<T> rows = new ArrayList<>();
+        if (query == null) {
+            return rows;
+        }
+        return stream(op, sql, mapper, rows::add, query, limit) ? rows : null;
+    }
+
+    // Grade distribution of one course, or null if it has no numeric grades or on error
+    public static GradeStats getGradeStats(int courseId) {
+        List<GradeStats> stats = readGradeStats(SQL_GRADE_STATS_BY_COURSE, courseId);
+        return stats == null || stats.isEmpty() ? null : stats.get(0);
+    }
+
+    // Grade distributions of every course with numeric grades, by course id; null on error
+    public static List<GradeStats> getAllGradeStats() {
+        return readGradeStats(SQL_GRADE_STATS_ALL);
+    }
+
+    // Rows arrive grouped by course with one row per non-empty bin
+    private static List<GradeStats> readGradeStats(String sql, Object... params) {
+        List<GradeStats> stats = new ArrayList<>();
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int courseId = 0;
+                long[] bins = null;
+                long rows = 0;
+                while (rs.next()) {
+                    rows++;
+                    if (bins == null || rs.getInt("course_id") != courseId) {
+                        courseId = rs.getInt("course_id");
+                        bins = new long[GradeStats.BINS];
+                        stats.add(new GradeStats(courseId, rs.getString("course_name"), rs.getLong("n"),
+                                rs.getDouble("total"), rs.getDouble("total_sq"), bins));
+                    }
+                    bins[rs.getInt("bin")] = rs.getLong("bin_count");
+                }
+                GRADES_STATS.record(start, rows);
+            }
+            return stats;
+        } catch (SQLException e) {
+            GRADES_STATS.recordError(start);
+            System.out.println("Error reading grade statistics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Course names, grades and average/GPA for the current student; null on error
+    public static GradeReport getGradeReportForCurrentUser() {
+        if (currentUserId == null) {
+            throw new IllegalStateException("Current user ID is not set");
+        }
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(SQL_GRADE_REPORT);
+            bind(pstmt, currentUserId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                GradeReport report = GradeReport.from(rs);
+                GRADES_REPORT.record(start, report.getLines().size());
+                return report;
+            }
+        } catch (SQLException e) {
+            GRADES_REPORT.recordError(start);
+            System.out.println("Error loading grade report: " + e.getMessage());
+            return null;
+        }
+    }
+
     public static void addAnnouncement(String title, String content, String date) {
         String sql = "INSERT INTO announcements (title, content, date) VALUES (?, ?, ?)";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            pstmt.setString(1, title);
-            pstmt.setString(2, content);
-            pstmt.setString(3, date);
-            pstmt.executeUpdate();
+            bind(pstmt, title, content, date);
+            ANNOUNCEMENTS_INSERT.record(start, pstmt.executeUpdate());
             
             System.out.println("Announcement added successfully.");
         } catch (SQLException e) {
+            ANNOUNCEMENTS_INSERT.recordError(start);
             System.out.println("Error adding announcement: " + e.getMessage());
         }
     }
 
+    public static BatchResult addAnnouncements(List<AnnouncementRow> announcements) {
+        return addAnnouncements(announcements, BATCH_SIZE);
+    }
+
+    public static BatchResult addAnnouncements(List<AnnouncementRow> announcements, int batchSize) {
+        String sql = "INSERT INTO announcements (title, content, date) VALUES (?, ?, ?)";
+        return writeBatch(ANNOUNCEMENTS_INSERT_BATCH, sql, announcements, batchSize,
+            a -> requireFields(a.getTitle(), a.getContent(), a.getDate()),
+            (pstmt, a) -> {
+                pstmt.setString(1, a.getTitle());
+                pstmt.setString(2, a.getContent());
+                pstmt.setString(3, a.getDate());
+            });
+    }
+
     public static ResultSet getAllAnnouncements() {
-        String sql = "SELECT * FROM announcements ORDER BY date DESC";
+        String sql = SQL_ANNOUNCEMENTS_BY_DATE;
         
-        try {
-            Connection conn = DriverManager.getConnection(DB_URL);
-            Statement stmt = conn.createStatement();
-            return stmt.executeQuery(sql);
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            CachedRowSet rows = detach(conn.prepare(sql).executeQuery());
+            ANNOUNCEMENTS_ALL.record(start, rows.size());
+            return rows;
         } catch (SQLException e) {
+            ANNOUNCEMENTS_ALL.recordError(start);
             System.out.println("Error getting announcements: " + e.getMessage());
             return null;
         }
     }
+
+    public static boolean forEachAnnouncement(RowConsumer<? super AnnouncementRow> consumer) {
+        return stream(ANNOUNCEMENTS_ALL, SQL_ANNOUNCEMENTS_BY_DATE, AnnouncementRow::from, consumer);
+    }
+
+    // Newest announcements first. Pass afterDate = null for the first page, then the
+    // date and id of the last row seen. Ties on date are broken by id.
+    public static Page<AnnouncementRow> getAnnouncementsPage(String afterDate, int afterId, int limit) {
+        if (afterDate == null) {
+            return page(ANNOUNCEMENTS_PAGE, SQL_ANNOUNCEMENTS_FIRST_PAGE, limit, AnnouncementRow::from);
+        }
+        return page(ANNOUNCEMENTS_PAGE, SQL_ANNOUNCEMENTS_PAGE, limit, AnnouncementRow::from, afterDate, afterId);
+    }
+
+    public static long countAnnouncements() {
+        return count(ANNOUNCEMENTS_COUNT, "announcements");
+    }
     public static void updateAnnouncement(int id, String title, String content, String date) {
         String sql = "UPDATE announcements SET title = ?, content = ?, date = ? WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            pstmt.setString(1, title);
-            pstmt.setString(2, content);
-            pstmt.setString(3, date);
-            pstmt.setInt(4, id);
-            pstmt.executeUpdate();
+            bind(pstmt, title, content, date, id);
+            ANNOUNCEMENTS_UPDATE.record(start, pstmt.executeUpdate());
             
             System.out.println("Announcement updated successfully.");
         } catch (SQLException e) {
+            ANNOUNCEMENTS_UPDATE.recordError(start);
             System.out.println("Error updating announcement: " + e.getMessage());
         }
     }
@@ -409,14 +1793,16 @@ public class Database {
     public static void deleteAnnouncement(int id) {
         String sql = "DELETE FROM announcements WHERE id = ?";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try (PooledConnection conn = pool.borrow()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+            bind(pstmt, id);
+            ANNOUNCEMENTS_DELETE.record(start, pstmt.executeUpdate());
             
             System.out.println("Announcement deleted successfully.");
         } catch (SQLException e) {
+            ANNOUNCEMENTS_DELETE.recordError(start);
             System.out.println("Error deleting announcement: " + e.getMessage());
         }
     }
@@ -0,0 +1,382 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Benchmarks every public Database operation against a scratch SQLite file at several table
+// sizes, single-threaded and with lms.bench.threads threads. Each benchmark warms up before it
+// is measured. Results go to a CSV with one line per (benchmark, rows, threads) so runs from
+// different releases can be diffed directly.
+// Usage: java DatabaseBenchmark [rows,...] [results.csv]
+// The getAll* reads copy whole tables into memory; give the JVM -Xmx4g or more at 1M rows.
+public class DatabaseBenchmark {
+    private static final long WARMUP_MS = Long.getLong("lms.bench.warmupMs", 1_000L);
+    private static final long MEASURE_MS = Long.getLong("lms.bench.measureMs", 3_000L);
+    private static final int THREADS = Integer.getInteger("lms.bench.threads", Runtime.getRuntime().availableProcessors());
+    // Latency samples kept per thread; operations past this are counted but not sampled
+    private static final int MAX_SAMPLES = 200_000;
+    private static final String PASSWORD = "benchmark";
+    private static final String[] TABLES = {"courses", "schedule", "announcements", "grades"};
+    // Rows seeded for each delete run; a run that uses them all up ends early
+    private static final int DELETE_ROWS = Integer.getInteger("lms.bench.deleteRows", 50_000);
+    private static final String SERIES = "WITH RECURSIVE n(i) AS (SELECT ? UNION ALL SELECT i + 1 FROM n WHERE i < ?) ";
+
+    private interface Operation {
+        void run(ThreadLocalRandom random) throws Exception;
+
+        // Called before every warmup and measured run
+        default void prepare() throws SQLException {
+        }
+
+        // Called after every run; returns the rows the run changed, or -1 if not tracked
+        default long finish() throws SQLException {
+            return -1;
+        }
+    }
+
+    // Thrown by an operation that has run out of rows to work on; ends the thread's run
+    private static class Exhausted extends Exception {
+    }
+
+    private interface DeleteCall {
+        void delete(int id);
+    }
+
+    // Deletes rows from a block seeded above every other id just before each run, walking down
+    // from the top, so every call removes a real row and the rows the other benchmarks pick by
+    // id are never touched. finish() counts the rows actually removed and drops the leftovers,
+    // resetting the id sequence so later seeding keeps ids contiguous.
+    private static class DeleteOperation implements Operation {
+        private final Connection seed;
+        private final String table;
+        private final DeleteCall call;
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile int low;
+        private int high;
+
+        DeleteOperation(Connection seed, String table, DeleteCall call) {
+            this.seed = seed;
+            this.table = table;
+            this.call = call;
+        }
+
+        @Override
+        public void run(ThreadLocalRandom random) throws Exhausted {
+            int id = next.getAndDecrement();
+            if (id < low) {
+                throw new Exhausted();
+            }
+            call.delete(id);
+        }
+
+        @Override
+        public void prepare() throws SQLException {
+            int before = maxId(seed, table);
+            insertRows(seed, table, DELETE_ROWS);
+            low = before + 1;
+            high = maxId(seed, table);
+            next.set(high);
+        }
+
+        @Override
+        public long finish() throws SQLException {
+            long left;
+            try (PreparedStatement pstmt = seed.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE id BETWEEN ? AND ?")) {
+                pstmt.setInt(1, low);
+                pstmt.setInt(2, high);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    left = rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+            try (PreparedStatement pstmt = seed.prepareStatement("DELETE FROM " + table + " WHERE id BETWEEN ? AND ?")) {
+                pstmt.setInt(1, low);
+                pstmt.setInt(2, high);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = seed.prepareStatement(
+                    "UPDATE sqlite_sequence SET seq = (SELECT COALESCE(MAX(id), 0) FROM " + table + ") WHERE name = ?")) {
+                pstmt.setString(1, table);
+                pstmt.executeUpdate();
+            }
+            return (high - low + 1) - left;
+        }
+    }
+
+    private static int rows;
+    private static int usersSeeded;
+    // Lesson file added by the course benchmarks; every add after the first is a store dedup hit
+    private static Path resource;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,100000,1000000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        Path results = Paths.get(args.length > 1 ? args[1] : "benchmark-results.csv");
+
+        Path dbFile = Files.createTempFile("lms-benchmark", ".db");
+        Files.delete(dbFile);
+        System.setProperty("lms.db.path", dbFile.toString());
+        Path storeDir = Files.createTempDirectory("lms-benchmark-store");
+        System.setProperty("lms.store.dir", storeDir.toString());
+        resource = Files.createTempFile("lms-benchmark-lesson", ".pdf");
+        Files.write(resource, new byte[64 * 1024]);
+        PrintStream console = System.out;
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+
+        try (Connection seed = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+             PrintWriter csv = new PrintWriter(Files.newBufferedWriter(results))) {
+            Database.initializeDatabase();
+            csv.println("benchmark,rows,threads,ops,ops_per_sec,mean_us,p50_us,p90_us,p99_us,max_us,rows_affected");
+            console.printf("%-26s %9s %7s %12s %10s %10s %10s%n", "benchmark", "rows", "threads", "ops/s", "mean us", "p50 us", "p99 us");
+
+            for (int size : sizes) {
+                rows = size;
+                long start = System.nanoTime();
+                grow(seed, size);
+                console.printf("Seeded %,d rows per table in %.1f s%n", size, (System.nanoTime() - start) / 1e9);
+                // The Database methods report every call on stdout; keep that out of the timings
+                System.setOut(silent);
+                try {
+                    for (Map.Entry<String, Operation> benchmark : operations(seed).entrySet()) {
+                        for (int threads : new int[]{1, THREADS}) {
+                            String line = measure(benchmark.getKey(), benchmark.getValue(), threads);
+                            csv.println(line);
+                            csv.flush();
+                            String[] f = line.split(",");
+                            console.printf("%-26s %9s %7s %12s %10s %10s %10s%n", f[0], f[1], f[2], f[4], f[5], f[6], f[8]);
+                        }
+                    }
+                } finally {
+                    System.setOut(console);
+                }
+            }
+        } finally {
+            Database.shutdown();
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Files.deleteIfExists(Paths.get(dbFile + suffix));
+            }
+            Files.deleteIfExists(resource);
+            try (java.util.stream.Stream<Path> stored = Files.walk(storeDir)) {
+                for (Path path : (Iterable<Path>) stored.sorted(java.util.Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        System.out.println("Results written to " + results.toAbsolutePath());
+    }
+
+    private static Map<String, Operation> operations(Connection seed) {
+        Map<String, Operation> ops = new LinkedHashMap<>();
+        AtomicInteger users = new AtomicInteger();
+        ops.put("authenticateUser", r -> Database.authenticateUser(randomUser(r), PASSWORD));
+        ops.put("userExists", r -> Database.userExists(randomUser(r)));
+        ops.put("getAllCourses", r -> close(Database.getAllCourses()));
+        ops.put("getAllGrades", r -> close(Database.getAllGrades()));
+        ops.put("getAllAnnouncements", r -> close(Database.getAllAnnouncements()));
+        ops.put("getGradesForCurrentUser", r -> {
+            Database.setCurrentUserId(Integer.toString(1 + r.nextInt(1000)));
+            close(Database.getGradesForCurrentUser());
+        });
+        ops.put("getGradeReportForCurrentUser", r -> {
+            Database.setCurrentUserId(Integer.toString(1 + r.nextInt(1000)));
+            Database.getGradeReportForCurrentUser();
+        });
+        ops.put("getGradeStats", r -> Database.getGradeStats(1 + r.nextInt(100)));
+        ops.put("getAllGradeStats", r -> Database.getAllGradeStats());
+        ops.put("searchAnnouncements", r -> Database.searchAnnouncements("Title " + r.nextInt(1000), 50));
+        ops.put("getResourceStoreStats", r -> Database.getResourceStoreStats());
+        ops.put("searchCourses", r -> Database.searchCourses("Course " + r.nextInt(100), 50));
+        ops.put("addUser", r -> Database.addUser("added-" + rows + "-" + users.incrementAndGet(), PASSWORD, "user"));
+        ops.put("addCourse", r -> Database.addCourse("Course " + r.nextInt(100), "Chapter 1", "Lesson", "pdf", resource.toString()));
+        ops.put("updateCourse", r -> Database.updateCourse(randomId(r), "Course " + r.nextInt(100), "Chapter 2", "Lesson", "pdf", "lesson.pdf"));
+        ops.put("addSchedule", r -> Database.addSchedule("Course " + r.nextInt(100), "Monday", "09:00", "09:50", "Room 1"));
+        ops.put("updateSchedule", r -> Database.updateSchedule(randomId(r), "Course " + r.nextInt(100), "Tuesday", "10:00", "10:50", "Room 2"));
+        ops.put("findScheduleConflicts", r -> {
+            int hour = 8 + r.nextInt(10);
+            Database.findScheduleConflicts(new ScheduleRow(0, "Course", "Day " + r.nextInt(5),
+                    String.format("%02d:30", hour), String.format("%02d:20", hour + 1), "Room " + r.nextInt(40)));
+        });
+        ops.put("validateTimetable", r -> Database.validateTimetable());
+        ops.put("addGrade", r -> Database.addGrade(Integer.toString(1 + r.nextInt(1000)), Integer.toString(1 + r.nextInt(100)), Integer.toString(r.nextInt(101))));
+        ops.put("updateGrade", r -> Database.updateGrade(randomId(r), Integer.toString(1 + r.nextInt(1000)), Integer.toString(1 + r.nextInt(100)), Integer.toString(r.nextInt(101))));
+        ops.put("addAnnouncement", r -> Database.addAnnouncement("Title", "Content", "2024-06-01"));
+        ops.put("updateAnnouncement", r -> Database.updateAnnouncement(randomId(r), "Title", "Updated", "2024-06-02"));
+        ops.put("deleteCourses", new DeleteOperation(seed, "courses", Database::deleteCourse));
+        ops.put("deleteSchedule", new DeleteOperation(seed, "schedule", Database::deleteSchedule));
+        ops.put("deleteAnnouncements", new DeleteOperation(seed, "announcements", Database::deleteAnnouncement));
+        ops.put("deleteGrades", new DeleteOperation(seed, "grades", Database::deleteGrade));
+        return ops;
+    }
+
+    private static String randomUser(ThreadLocalRandom r) {
+        return "bench" + (1 + r.nextInt(rows));
+    }
+
+    private static int randomId(ThreadLocalRandom r) {
+        return 1 + r.nextInt(rows);
+    }
+
+    private static void close(ResultSet rs) throws SQLException {
+        if (rs != null) {
+            rs.close();
+        }
+    }
+
+    // Runs the operation on the given number of threads for the warmup period, then again
+    // for the measurement period, and returns one CSV line
+    private static String measure(String name, Operation op, int threads) throws InterruptedException, SQLException {
+        op.prepare();
+        run(op, threads, WARMUP_MS);
+        op.finish();
+        op.prepare();
+        long start = System.nanoTime();
+        List<long[]> samples = run(op, threads, MEASURE_MS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long affected = op.finish();
+
+        long ops = 0;
+        int sampled = 0;
+        for (long[] s : samples) {
+            ops += s[0];
+            sampled += (int) Math.min(s[0], MAX_SAMPLES);
+        }
+        long[] latencies = new long[sampled];
+        int pos = 0;
+        double total = 0;
+        for (long[] s : samples) {
+            int n = (int) Math.min(s[0], MAX_SAMPLES);
+            System.arraycopy(s, 1, latencies, pos, n);
+            pos += n;
+        }
+        Arrays.sort(latencies);
+        for (long latency : latencies) {
+            total += latency;
+        }
+        return String.format("%s,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%s", name, rows, threads, ops, ops / seconds,
+                sampled == 0 ? 0 : total / sampled / 1e3, percentile(latencies, 0.50), percentile(latencies, 0.90),
+                percentile(latencies, 0.99), sampled == 0 ? 0 : latencies[sampled - 1] / 1e3,
+                affected < 0 ? "" : Long.toString(affected));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e3;
+    }
+
+    // Each thread returns {operation count, latency samples in ns...}
+    private static List<long[]> run(Operation op, int threads, long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        List<long[]> samples = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] s = new long[MAX_SAMPLES + 1];
+            samples.add(s);
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    // At least one call, so multi-second operations still get measured
+                    do {
+                        long begin = System.nanoTime();
+                        op.run(random);
+                        long elapsed = System.nanoTime() - begin;
+                        if (s[0] < MAX_SAMPLES) {
+                            s[(int) s[0] + 1] = elapsed;
+                        }
+                        s[0]++;
+                    } while (System.nanoTime() < deadline);
+                } catch (Exhausted e) {
+                    // Out of rows; the run's time and counts stop here
+                } catch (Exception e) {
+                    System.err.println("Error in benchmark: " + e.getMessage());
+                }
+            }, "benchmark-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return samples;
+    }
+
+    // Tops every table up to the given row count with generated rows. Users share one
+    // precomputed hash so seeding does not pay the PBKDF2 cost per row.
+    private static void grow(Connection conn, int size) throws SQLException {
+        conn.setAutoCommit(false);
+        if (usersSeeded < size) {
+            String hash = new PasswordHasher(Integer.getInteger("lms.auth.iterations", 210_000)).hash(PASSWORD);
+            try (PreparedStatement pstmt = conn.prepareStatement(SERIES +
+                    "INSERT INTO users (username, password, password_hash, user_type) SELECT 'bench' || i, '', ?, 'user' FROM n")) {
+                pstmt.setInt(1, usersSeeded + 1);
+                pstmt.setInt(2, size);
+                pstmt.setString(3, hash);
+                pstmt.executeUpdate();
+            }
+            usersSeeded = size;
+        }
+        for (String table : TABLES) {
+            long missing = size - count(conn, table);
+            if (missing > 0) {
+                insertRows(conn, table, missing);
+            }
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // Appends count generated rows to one of the TABLES
+    private static void insertRows(Connection conn, String table, long count) throws SQLException {
+        String generator;
+        switch (table) {
+            case "courses":
+                generator = "INSERT INTO courses (name, chapter, lesson, resource_type, file_path) " +
+                        "SELECT 'Course ' || (i % 100), 'Chapter ' || (i % 10), 'Lesson ' || i, 'pdf', '/tmp/lesson' || i || '.pdf' FROM n";
+                break;
+            case "schedule":
+                generator = "INSERT INTO schedule (course, day, start_time, end_time, room) " +
+                        "SELECT 'Course ' || (i % 100), 'Day ' || (i % 5), printf('%02d:00', 8 + i % 10), printf('%02d:50', 8 + i % 10), 'Room ' || (i % 40) FROM n";
+                break;
+            case "announcements":
+                generator = "INSERT INTO announcements (title, content, date) " +
+                        "SELECT 'Title ' || i, 'Content ' || i, date('2024-01-01', '+' || (i % 365) || ' days') FROM n";
+                break;
+            default:
+                generator = "INSERT INTO grades (student_id, course_id, grade) " +
+                        "SELECT 1 + (i % 1000), 1 + (i % 100), (i * 37) % 101 FROM n";
+                break;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SERIES + generator)) {
+            pstmt.setInt(1, 1);
+            pstmt.setLong(2, count);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int maxId(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static long count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Copies resource files to where the user asked for them, off the EDT. At most
+// maxConcurrent downloads run at once and the rest wait in a queue. Each one goes through
+// FileChannel.transferTo, which lets the kernel copy between the files without bringing the
+// bytes into the JVM, in chunks so progress can be reported and a cancel takes effect
+// promptly. Data lands in "<destination>.part" and is renamed into place when complete;
+// a cancelled or failed download leaves the .part file, and the next download of the same
+// source to the same destination continues from where it stopped.
+//
+// Which source a .part file holds is recorded next to it in "<destination>.part.source":
+// the source's content hash when the caller knows it, otherwise its path, size and
+// modification time. A .part file is only resumed if that record matches the new download;
+// anything else, including a .part file with no record, starts over from zero.
+public class DownloadManager {
+    private static final long CHUNK_BYTES = Long.getLong("lms.download.chunkBytes", 8L * 1024 * 1024);
+    private static final String PART_SUFFIX = ".part";
+    private static final String SOURCE_SUFFIX = ".part.source";
+
+    public enum State { QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final ExecutorService executor;
+
+    public DownloadManager(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Need at least one concurrent download");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "download-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+
+    public static class Progress {
+        public final State state;
+        public final long transferred;
+        public final long total;
+        // Bytes already in the .part file when this attempt started
+        public final long resumedFrom;
+        public final long elapsedNanos;
+        public final String error;
+
+        Progress(State state, long transferred, long total, long resumedFrom, long elapsedNanos, String error) {
+            this.state = state;
+            this.transferred = transferred;
+            this.total = total;
+            this.resumedFrom = resumedFrom;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+
+        public double fraction() {
+            return total == 0 ? (state == State.COMPLETED ? 1 : 0) : transferred / (double) total;
+        }
+
+        // Throughput of this attempt, not counting the resumed part
+        public double bytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (transferred - resumedFrom) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            switch (state) {
+                case QUEUED:
+                    return "Queued";
+                case FAILED:
+                    return "Failed: " + error;
+                case CANCELLED:
+                    return String.format("Cancelled at %.0f%%", fraction() * 100);
+                case COMPLETED:
+                    return String.format("Done, %,.1f MB/s", bytesPerSecond() / 1e6);
+                default:
+                    return String.format("%.0f%%, %,.1f MB/s%s", fraction() * 100, bytesPerSecond() / 1e6,
+                            resumedFrom > 0 ? ", resumed" : "");
+            }
+        }
+    }
+
+    public class Download implements Runnable {
+        private final Path source;
+        private final Path destination;
+        private final String contentHash;
+        private final Consumer<Progress> listener;
+        private volatile boolean cancelled;
+        private volatile Progress progress;
+
+        Download(Path source, Path destination, String contentHash, Consumer<Progress> listener) {
+            this.source = source;
+            this.destination = destination;
+            this.contentHash = contentHash;
+            this.listener = listener;
+            this.progress = new Progress(State.QUEUED, 0, 0, 0, 0, null);
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getDestination() {
+            return destination;
+        }
+
+        public Progress getProgress() {
+            return progress;
+        }
+
+        // Stops the download after the current chunk, or before it starts if still queued
+        public void cancel() {
+            cancelled = true;
+        }
+
+        // Queues the same transfer again; it continues from the .part file left behind
+        public Download resume() {
+            return download(source, destination, contentHash, listener);
+        }
+
+        // What the .part file must have been written from to be resumed; the hash alone
+        // identifies content, so a store touching the blob's timestamp does not matter
+        private String sourceIdentity(long size) throws IOException {
+            if (contentHash != null) {
+                return "hash " + contentHash + " " + size;
+            }
+            return "file " + source.toAbsolutePath() + " " + size + " " + Files.getLastModifiedTime(source).toMillis();
+        }
+
+        private void report(State state, long transferred, long total, long resumedFrom, long start, String error) {
+            progress = new Progress(state, transferred, total, resumedFrom, System.nanoTime() - start, error);
+            listener.accept(progress);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            if (cancelled) {
+                report(State.CANCELLED, 0, 0, 0, start, null);
+                return;
+            }
+            Path part = destination.resolveSibling(destination.getFileName() + PART_SUFFIX);
+            Path record = destination.resolveSibling(destination.getFileName() + SOURCE_SUFFIX);
+            long position = 0;
+            long total = 0;
+            long resumedFrom = 0;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                total = in.size();
+                String identity = sourceIdentity(total);
+                long existing = out.size();
+                if (existing > 0 && (existing > total || !identity.equals(readRecord(record)))) {
+                    existing = 0;
+                }
+                if (existing == 0) {
+                    // Emptied before the record is rewritten, so a crash in between cannot pair
+                    // this source's record with another source's bytes
+                    out.truncate(0);
+                    Files.write(record, identity.getBytes(StandardCharsets.UTF_8));
+                }
+                position = existing;
+                resumedFrom = existing;
+                report(State.RUNNING, position, total, resumedFrom, start, null);
+                while (position < total) {
+                    if (cancelled) {
+                        report(State.CANCELLED, position, total, resumedFrom, start, null);
+                        return;
+                    }
+                    // transferTo may move fewer bytes than asked; the loop picks up the rest
+                    long sent = in.transferTo(position, Math.min(CHUNK_BYTES, total - position), out.position(position));
+                    if (sent <= 0 && in.size() < total) {
+                        throw new IOException("source file shrank during download");
+                    }
+                    position += sent;
+                    report(State.RUNNING, position, total, resumedFrom, start, null);
+                }
+                out.force(false);
+            } catch (IOException e) {
+                report(State.FAILED, position, total, resumedFrom, start, e.getMessage());
+                return;
+            }
+            try {
+                try {
+                    Files.move(part, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(part, destination, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.deleteIfExists(record);
+                report(State.COMPLETED, position, total, resumedFrom, start, null);
+            } catch (IOException e) {
+                report(State.FAILED, position, total, resumedFrom, start, e.getMessage());
+            }
+        }
+    }
+
+    private static String readRecord(Path record) {
+        try {
+            return new String(Files.readAllBytes(record), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Queues a copy of source to destination. contentHash identifies the source's content if
+    // known (null otherwise) and decides whether a .part file left earlier can be resumed.
+    // The listener is called on a download thread with every progress update, ending with
+    // COMPLETED, CANCELLED or FAILED.
+    public Download download(Path source, Path destination, String contentHash, Consumer<Progress> listener) {
+        Download download = new Download(source, destination, contentHash, listener);
+        executor.execute(download);
+        return download;
+    }
+
+    // Stops taking downloads and interrupts running ones; their .part files are kept for resuming
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,247 @@
+import javax.swing.AbstractButton;
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JPasswordField;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.GraphicsEnvironment;
+import java.awt.Window;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fails with a non-zero exit code if the UI touches the database on the Swing event dispatch
+// thread. Runs with lms.db.edtPolicy=fail against a scratch database: logs in through the
+// Login window as the default admin and user accounts, and in the Admin and User windows that
+// opens, visits every sidebar card and clicks every button on it. Dialogs are closed as soon
+// as they open, so confirmations are declined and forms are submitted empty. Needs a display;
+// on a headless machine run it under xvfb-run.
+// Usage: java EdtAccessCheck
+public class EdtAccessCheck {
+    private static final long SETTLE_MS = Long.getLong("lms.check.settleMs", 500L);
+    private static final long LOGIN_TIMEOUT_MS = Long.getLong("lms.check.loginTimeoutMs", 30_000L);
+    // Upper bound on clicks per card, in case a button keeps rebuilding the card it is on
+    private static final int MAX_CLICKS_PER_CARD = 100;
+
+    private static final AtomicInteger uncaught = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("EdtAccessCheck needs a display; run it under xvfb-run on a headless machine.");
+            System.exit(2);
+        }
+        // Must be set before ConnectionPool is loaded
+        System.setProperty("lms.db.edtPolicy", "fail");
+        Path dbFile = Files.createTempFile("lms-edt-check", ".db");
+        Files.delete(dbFile);
+        Path storeDir = Files.createTempDirectory("lms-edt-check-store");
+        System.setProperty("lms.db.path", dbFile.toString());
+        System.setProperty("lms.store.dir", storeDir.toString());
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            uncaught.incrementAndGet();
+            System.out.println("Uncaught on " + thread.getName() + ": " + e);
+        });
+
+        int status;
+        Database.initializeDatabase();
+        Timer dialogCloser = onEdt(() -> {
+            Timer timer = new Timer(100, e -> closeDialogs());
+            timer.start();
+            return timer;
+        });
+        try {
+            boolean opened = exercise("admin", "admin123", Admin.class) && exercise("user", "user123", User.class);
+            Thread.sleep(SETTLE_MS);
+            int violations = ConnectionPool.getEdtViolations();
+            if (!opened) {
+                System.out.println("Could not log in and open every window.");
+                status = 2;
+            } else if (violations > 0) {
+                System.out.println(violations + " database access(es) on the event dispatch thread.");
+                status = 1;
+            } else {
+                System.out.println("No database access on the event dispatch thread.");
+                status = 0;
+            }
+            if (uncaught.get() > 0) {
+                System.out.println(uncaught.get() + " uncaught exception(s) while driving the UI.");
+            }
+        } finally {
+            onEdt(() -> {
+                dialogCloser.stop();
+                for (Window window : Window.getWindows()) {
+                    window.dispose();
+                }
+                return null;
+            });
+            Database.shutdown();
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                Files.deleteIfExists(Paths.get(dbFile + suffix));
+            }
+            deleteTree(storeDir);
+        }
+        System.exit(status);
+    }
+
+    // Logs in through a new Login window and clicks through the window it opens
+    private static boolean exercise(String username, String password, Class<? extends JFrame> expected) throws Exception {
+        System.out.println("Logging in as " + username);
+        onEdt(() -> {
+            Login login = new Login();
+            login.setVisible(true);
+            for (Component c : components(login)) {
+                if (c instanceof JPasswordField) {
+                    ((JPasswordField) c).setText(password);
+                } else if (c instanceof JTextField) {
+                    ((JTextField) c).setText(username);
+                }
+            }
+            button(login, "Login").doClick();
+            return null;
+        });
+
+        JFrame frame = null;
+        long deadline = System.currentTimeMillis() + LOGIN_TIMEOUT_MS;
+        while (frame == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            frame = onEdt(() -> {
+                for (Window window : Window.getWindows()) {
+                    if (expected.isInstance(window) && window.isShowing()) {
+                        return (JFrame) window;
+                    }
+                }
+                return null;
+            });
+        }
+        if (frame == null) {
+            System.out.println("No " + expected.getSimpleName() + " window opened");
+            return false;
+        }
+
+        JFrame window = frame;
+        // Whatever is clickable before anything has been clicked is the sidebar (and the first card)
+        List<JButton> navigation = onEdt(() -> showingButtons(window));
+        Set<AbstractButton> clicked = Collections.newSetFromMap(new IdentityHashMap<>());
+        clicked.addAll(navigation);
+        for (JButton nav : navigation) {
+            if (nav.getText().equals("Logout")) {
+                continue;
+            }
+            System.out.println("  " + expected.getSimpleName() + ": " + nav.getText());
+            click(nav);
+            for (int i = 0; i < MAX_CLICKS_PER_CARD; i++) {
+                JButton next = onEdt(() -> {
+                    for (JButton button : showingButtons(window)) {
+                        if (!clicked.contains(button) && button.isEnabled()) {
+                            return button;
+                        }
+                    }
+                    return null;
+                });
+                if (next == null) {
+                    break;
+                }
+                clicked.add(next);
+                click(next);
+            }
+        }
+        onEdt(() -> {
+            window.dispose();
+            return null;
+        });
+        return true;
+    }
+
+    // Clicks on the EDT, then gives the background work it started time to call back
+    private static void click(AbstractButton button) throws Exception {
+        onEdt(() -> {
+            try {
+                button.doClick();
+            } catch (RuntimeException e) {
+                // e.g. the policy rejecting a borrow; counted by ConnectionPool, keep going
+                uncaught.incrementAndGet();
+                System.out.println("Exception clicking \"" + button.getText() + "\": " + e);
+            }
+            return null;
+        });
+        Thread.sleep(SETTLE_MS);
+    }
+
+    // Declines confirmations and dismisses messages and file choosers
+    private static void closeDialogs() {
+        for (Window window : Window.getWindows()) {
+            if (window instanceof Dialog && window.isShowing()) {
+                window.dispose();
+            }
+        }
+    }
+
+    private static List<JButton> showingButtons(Container root) {
+        List<JButton> buttons = new ArrayList<>();
+        for (Component c : components(root)) {
+            if (c instanceof JButton && c.isShowing()) {
+                buttons.add((JButton) c);
+            }
+        }
+        return buttons;
+    }
+
+    private static JButton button(Container root, String text) {
+        for (JButton button : showingButtons(root)) {
+            if (text.equals(button.getText())) {
+                return button;
+            }
+        }
+        throw new IllegalStateException("No \"" + text + "\" button");
+    }
+
+    private static List<Component> components(Container root) {
+        List<Component> all = new ArrayList<>();
+        for (Component c : root.getComponents()) {
+            all.add(c);
+            if (c instanceof Container) {
+                all.addAll(components((Container) c));
+            }
+        }
+        return all;
+    }
+
+    private interface EdtWork<T> {
+        T run() throws Exception;
+    }
+
+    private static <T> T onEdt(EdtWork<T> work) throws Exception {
+        List<T> result = new ArrayList<>(1);
+        Exception[] failure = new Exception[1];
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.add(work.run());
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return result.get(0);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (java.util.stream.Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(java.util.Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.Collections;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+// Read-only table model over a list of rows with an optional set of visible row numbers.
+// Changing the filter swaps one array, so showing a new result costs the same on the EDT
+// however many rows matched.
+public class FilteredTableModel<T> extends AbstractTableModel {
+    public interface ColumnValue<T> {
+        Object get(T row, int column);
+    }
+
+    private final String[] columnNames;
+    private final ColumnValue<? super T> values;
+    private List<T> rows = Collections.emptyList();
+    // Ascending row numbers to show, or null for all rows
+    private int[] visible;
+
+    public FilteredTableModel(String[] columnNames, ColumnValue<? super T> values) {
+        this.columnNames = columnNames;
+        this.values = values;
+    }
+
+    public void setRows(List<T> rows) {
+        this.rows = rows;
+        this.visible = null;
+        fireTableDataChanged();
+    }
+
+    public void setVisible(int[] visible) {
+        this.visible = visible;
+        fireTableDataChanged();
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public T getRow(int viewRow) {
+        return rows.get(visible == null ? viewRow : visible[viewRow]);
+    }
+
+    @Override
+    public int getRowCount() {
+        return visible == null ? rows.size() : visible.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return values.get(getRow(rowIndex), columnIndex);
+    }
+}
@@ -0,0 +1,196 @@
+import javax.swing.SwingWorker;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Streams a "student_id,course_id,grade" CSV into the grades table on a background thread.
+// At most one chunk of rows is held in memory. Each chunk commits together with the line
+// number it reached, so re-running an interrupted import picks up where it stopped.
+public class GradeImportWorker extends SwingWorker<GradeImportWorker.Progress, GradeImportWorker.Progress> {
+    private static final int CHUNK_SIZE = Integer.getInteger("lms.import.chunkSize", 2000);
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final Path file;
+    private final Consumer<Progress> onProgress;
+    private final Consumer<Progress> onDone;
+
+    private final long startNanos = System.nanoTime();
+    private long linesRead;
+    private long resumedFrom;
+    private long imported;
+    private long invalid;
+    private final List<String> errors = new ArrayList<>();
+
+    public GradeImportWorker(Path file, Consumer<Progress> onProgress, Consumer<Progress> onDone) {
+        this.file = file;
+        this.onProgress = onProgress;
+        this.onDone = onDone;
+    }
+
+    // Identifies this exact file; editing or replacing it starts a fresh import
+    static String importKey(Path file) throws IOException {
+        Path real = file.toRealPath();
+        return "grades:" + real + ":" + Files.size(real) + ":" + Files.getLastModifiedTime(real).toMillis();
+    }
+
+    @Override
+    protected Progress doInBackground() throws Exception {
+        String key = importKey(file);
+        resumedFrom = Database.getImportProgress(key);
+
+        List<GradeRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isCancelled()) {
+                    return snapshot("Import cancelled", false);
+                }
+                linesRead++;
+                if (linesRead <= resumedFrom || line.trim().isEmpty()) {
+                    continue;
+                }
+                GradeRow row = parse(line);
+                if (row == null) {
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    String failure = flush(key, chunk);
+                    if (failure != null) {
+                        return snapshot(failure, false);
+                    }
+                }
+            }
+        }
+        // Always record the final position, even for an empty chunk, so a finished file is not re-imported
+        String failure = flush(key, chunk);
+        return snapshot(failure, failure == null);
+    }
+
+    private String flush(String key, List<GradeRow> chunk) {
+        BatchResult result = Database.importGrades(key, linesRead, chunk);
+        if (!result.isCommitted()) {
+            return "Import stopped at line " + linesRead + ": " + result.getErrors();
+        }
+        imported += result.getWritten();
+        chunk.clear();
+        publish(snapshot(null, false));
+        return null;
+    }
+
+    private GradeRow parse(String line) {
+        List<String> fields = splitCsv(line);
+        // Skip a header row such as "student_id,course_id,grade"
+        if (linesRead == 1 && !fields.isEmpty() && !fields.get(0).isEmpty() && !Character.isDigit(fields.get(0).charAt(0))) {
+            return null;
+        }
+        String problem;
+        GradeRow row = null;
+        if (fields.size() != 3) {
+            problem = "expected 3 fields but found " + fields.size();
+        } else {
+            row = new GradeRow(0, fields.get(0), fields.get(1), fields.get(2));
+            problem = Database.validateGrade(row);
+        }
+        if (problem != null) {
+            invalid++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + linesRead + ": " + problem);
+            }
+            return null;
+        }
+        return row;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private Progress snapshot(String failure, boolean finished) {
+        return new Progress(linesRead, resumedFrom, imported, invalid, System.nanoTime() - startNanos,
+                new ArrayList<>(errors), failure, finished);
+    }
+
+    @Override
+    protected void process(List<Progress> chunks) {
+        onProgress.accept(chunks.get(chunks.size() - 1));
+    }
+
+    @Override
+    protected void done() {
+        Progress result;
+        try {
+            result = isCancelled() ? snapshot("Import cancelled", false) : get();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            result = snapshot("Import failed: " + cause.getMessage(), false);
+        }
+        onDone.accept(result);
+    }
+
+    public static class Progress {
+        public final long linesRead;
+        public final long resumedFrom;
+        public final long imported;
+        public final long invalid;
+        public final long elapsedNanos;
+        public final List<String> errors;
+        public final String failure;
+        public final boolean finished;
+
+        Progress(long linesRead, long resumedFrom, long imported, long invalid, long elapsedNanos,
+                 List<String> errors, String failure, boolean finished) {
+            this.linesRead = linesRead;
+            this.resumedFrom = resumedFrom;
+            this.imported = imported;
+            this.invalid = invalid;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = Collections.unmodifiableList(errors);
+            this.failure = failure;
+            this.finished = finished;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            String status = String.format("%,d imported, %,d invalid, %,.0f rows/s", imported, invalid, rowsPerSecond());
+            if (resumedFrom > 0) {
+                status += String.format(", resumed after line %,d", resumedFrom);
+            }
+            return status;
+        }
+    }
+}
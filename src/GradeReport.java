@@ -0,0 +1,103 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// A student's grades with course names and the summary columns computed by the same query.
+// GPA is on a 4.0 scale: 90+ is 4, 80+ is 3, 70+ is 2, 60+ is 1, anything lower 0.
+public class GradeReport {
+    private final List<Line> lines;
+    private final int graded;
+    private final double average;
+    private final double gpa;
+
+    GradeReport(List<Line> lines, int graded, double average, double gpa) {
+        this.lines = Collections.unmodifiableList(lines);
+        this.graded = graded;
+        this.average = average;
+        this.gpa = gpa;
+    }
+
+    // Every row carries the same aggregate columns; an empty result means no grades yet
+    static GradeReport from(ResultSet rs) throws SQLException {
+        List<Line> lines = new ArrayList<>();
+        int graded = 0;
+        double average = 0;
+        double gpa = 0;
+        while (rs.next()) {
+            if (lines.isEmpty()) {
+                graded = rs.getInt("graded");
+                average = rs.getDouble("average");
+                gpa = rs.getDouble("gpa");
+            }
+            lines.add(Line.from(rs));
+        }
+        return new GradeReport(lines, graded, average, gpa);
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    // Courses with a grade recorded; each one counts as one credit
+    public int getGraded() {
+        return graded;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getGpa() {
+        return gpa;
+    }
+
+    public static class Line {
+        private final int id;
+        private final String courseId;
+        private final String courseName;
+        private final Double grade;
+        private final Double points;
+
+        Line(int id, String courseId, String courseName, Double grade, Double points) {
+            this.id = id;
+            this.courseId = courseId;
+            this.courseName = courseName;
+            this.grade = grade;
+            this.points = points;
+        }
+
+        static Line from(ResultSet rs) throws SQLException {
+            int id = rs.getInt("id");
+            String courseId = rs.getString("course_id");
+            String courseName = rs.getString("course_name");
+            double grade = rs.getDouble("grade");
+            boolean ungraded = rs.wasNull();
+            double points = rs.getDouble("points");
+            return new Line(id, courseId, courseName, ungraded ? null : grade, ungraded ? null : points);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getCourseId() {
+            return courseId;
+        }
+
+        // Null if the course has been deleted
+        public String getCourseName() {
+            return courseName;
+        }
+
+        public Double getGrade() {
+            return grade;
+        }
+
+        // Grade points on the 4.0 scale; null if ungraded
+        public Double getPoints() {
+            return points;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class GradeRow {
+    private final int id;
+    private final String studentId;
+    private final String courseId;
+    private final String grade;
+
+    public GradeRow(int id, String studentId, String courseId, String grade) {
+        this.id = id;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.grade = grade;
+    }
+
+    static GradeRow from(ResultSet rs) throws SQLException {
+        return new GradeRow(
+            rs.getInt("id"),
+            rs.getString("student_id"),
+            rs.getString("course_id"),
+            rs.getString("grade"));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public String getCourseId() {
+        return courseId;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+}
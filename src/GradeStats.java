@@ -0,0 +1,75 @@
+// Grade distribution of one course, read from the grade_stats tables that triggers on
+// grades keep up to date. Count, mean and standard deviation are exact; percentiles
+// come from a histogram with one bin per grade point (0-100), so they are within one
+// point of the grade at that rank. Reading a course costs the same however many grades it has.
+public class GradeStats {
+    static final int BINS = 101;
+
+    private final int courseId;
+    private final String courseName;
+    private final long count;
+    private final double total;
+    private final double totalSquares;
+    private final long[] bins;
+
+    GradeStats(int courseId, String courseName, long count, double total, double totalSquares, long[] bins) {
+        this.courseId = courseId;
+        this.courseName = courseName;
+        this.count = count;
+        this.total = total;
+        this.totalSquares = totalSquares;
+        this.bins = bins;
+    }
+
+    public int getCourseId() {
+        return courseId;
+    }
+
+    // Null if the course row has been deleted
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    // Population standard deviation
+    public double getStdDev() {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = getMean();
+        return Math.sqrt(Math.max(0, totalSquares / count - mean * mean));
+    }
+
+    public double getMedian() {
+        return getPercentile(0.5);
+    }
+
+    // Interpolates within the bin holding the q-th grade, assuming grades are spread evenly across it
+    public double getPercentile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        long seen = 0;
+        long inBins = 0;
+        for (long n : bins) {
+            inBins += n;
+        }
+        double rank = q * inBins;
+        for (int bin = 0; bin < bins.length; bin++) {
+            long n = bins[bin];
+            if (n > 0 && seen + n >= rank) {
+                double width = bin == bins.length - 1 ? 0 : 1;
+                return bin + width * (rank - seen) / n;
+            }
+            seen += n;
+        }
+        return 0;
+    }
+}
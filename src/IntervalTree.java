@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Half-open intervals [start, end) kept in an AVL tree ordered by (start, id), where each
+// node also records the largest end in its subtree. Adding, removing and finding the
+// intervals that overlap a query all take O(log n), plus O(k) for k overlaps reported.
+// Intervals that only touch (one ends where the other starts) do not overlap.
+// Not thread safe.
+public class IntervalTree<T> {
+    private static class Node<T> {
+        final int start;
+        final int end;
+        final int id;
+        final T value;
+        int maxEnd;
+        int height = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(int start, int end, int id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node<T> root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    // Adds an interval; id must be unique among intervals with the same start
+    public void add(int start, int end, int id, T value) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Interval must end after it starts");
+        }
+        root = insert(root, new Node<>(start, end, id, value));
+        size++;
+    }
+
+    // Removes the interval added with this start and id; false if there is none
+    public boolean remove(int start, int id) {
+        int before = size;
+        root = delete(root, start, id);
+        return size < before;
+    }
+
+    // Values of the intervals overlapping [start, end), in start order
+    public List<T> overlapping(int start, int end) {
+        List<T> result = new ArrayList<>();
+        collect(root, start, end, result);
+        return result;
+    }
+
+    public boolean overlapsAny(int start, int end) {
+        return findAny(root, start, end);
+    }
+
+    // Every value in start order
+    public List<T> values() {
+        List<T> result = new ArrayList<>(size);
+        inOrder(root, result);
+        return result;
+    }
+
+    private static <T> void collect(Node<T> node, int start, int end, List<T> result) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, result);
+        if (node.start < end) {
+            if (node.end > start) {
+                result.add(node.value);
+            }
+            collect(node.right, start, end, result);
+        }
+    }
+
+    private static <T> boolean findAny(Node<T> node, int start, int end) {
+        while (node != null && node.maxEnd > start) {
+            if (node.start < end && node.end > start) {
+                return true;
+            }
+            // An overlap on the left is possible whenever its subtree reaches past start
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else if (node.start < end) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static <T> void inOrder(Node<T> node, List<T> result) {
+        if (node != null) {
+            inOrder(node.left, result);
+            result.add(node.value);
+            inOrder(node.right, result);
+        }
+    }
+
+    private static int compare(int start, int id, Node<?> node) {
+        int c = Integer.compare(start, node.start);
+        return c != 0 ? c : Integer.compare(id, node.id);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        int c = compare(added.start, added.id, node);
+        if (c == 0) {
+            throw new IllegalArgumentException("Duplicate interval id " + added.id);
+        }
+        if (c < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private Node<T> delete(Node<T> node, int start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, id, node);
+        if (c < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (c > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node<T> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private Node<T> removeMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        int max = node.end;
+        if (node.left != null) {
+            max = Math.max(max, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            max = Math.max(max, node.right.maxEnd);
+        }
+        node.maxEnd = max;
+    }
+
+    private Node<T> balance(Node<T> node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
@@ -0,0 +1,126 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Table model that reads rows from the database in fixed-size blocks only when the
+// JTable asks for them, i.e. as the viewport scrolls. Loaded blocks are kept in a small
+// LRU, so memory stays bounded no matter how large the table is.
+//
+// Blocks are located by keyset: for every block boundary seen so far we remember the key
+// of the row just before it, and read a new block by seeking past the nearest such key.
+// Sequential scrolling never uses OFFSET; a jump uses OFFSET only from the nearest boundary.
+//
+// Blocks load on BackgroundTasks threads. Until a block arrives its cells are empty, and
+// the rows are repainted once it has loaded. A block whose read failed or was cancelled is
+// not cached; it is read again the next time its rows are painted. After a failure that
+// waits a short pause, so a database that keeps failing is not hammered on every repaint.
+public class LazyTableModel extends AbstractTableModel {
+    private static final int BLOCK_SIZE = Integer.getInteger("lms.table.blockSize", 256);
+    private static final int MAX_BLOCKS = Integer.getInteger("lms.table.maxBlocks", 32);
+    private static final long RETRY_MILLIS = Long.getLong("lms.table.retryMs", 2000);
+
+    private final TableView view;
+    private final int rowCount;
+    private final BackgroundTasks tasks;
+    private final String group;
+    private final Map<Integer, RowBlock> blocks = new LinkedHashMap<Integer, RowBlock>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RowBlock> eldest) {
+            return size() > MAX_BLOCKS;
+        }
+    };
+    private final TreeMap<Integer, Object[]> keysBeforeBlock = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // Block index -> when its last read failed, until the retry pause has passed
+    private final Map<Integer, Long> failedAt = new HashMap<>();
+
+    // rowCount comes from Database.countRows(view), read off the EDT by the caller
+    public LazyTableModel(TableView view, long rowCount, BackgroundTasks tasks, String group) {
+        this.view = view;
+        this.rowCount = (int) Math.min(Integer.MAX_VALUE, rowCount);
+        this.tasks = tasks;
+        this.group = group;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return view.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return view.getColumnName(column);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (view.getColumnType(column)) {
+            case INT:
+                return Integer.class;
+            case REAL:
+                return Double.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int index = row / BLOCK_SIZE;
+        RowBlock block = blocks.get(index);
+        if (block == null) {
+            requestBlock(index);
+            return null;
+        }
+        int offset = row % BLOCK_SIZE;
+        // Rows deleted since the count was taken leave the tail of the table empty
+        return offset < block.size() ? block.get(offset, column) : null;
+    }
+
+    // Whether the row's values are available; unloaded rows and the deleted tail read as null
+    public boolean isLoaded(int row) {
+        RowBlock block = blocks.get(row / BLOCK_SIZE);
+        return block != null && row % BLOCK_SIZE < block.size();
+    }
+
+    private void requestBlock(int index) {
+        Long failed = failedAt.get(index);
+        if (failed != null && System.currentTimeMillis() - failed < RETRY_MILLIS) {
+            return;
+        }
+        if (!loading.add(index)) {
+            return;
+        }
+        failedAt.remove(index);
+        Map.Entry<Integer, Object[]> nearest = keysBeforeBlock.floorEntry(index);
+        Object[] afterKey = nearest == null ? null : nearest.getValue();
+        int skip = (index - (nearest == null ? 0 : nearest.getKey())) * BLOCK_SIZE;
+
+        tasks.submit(group, () -> Database.readBlock(view, afterKey, skip, BLOCK_SIZE), block -> {
+            blocks.put(index, block);
+            if (block.size() == BLOCK_SIZE) {
+                keysBeforeBlock.put(index + 1, block.keyAt(BLOCK_SIZE - 1));
+            }
+            int first = index * BLOCK_SIZE;
+            int last = Math.min(rowCount, first + BLOCK_SIZE) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, outcome -> {
+            loading.remove(index);
+            // A cancelled read (e.g. the user left the card) is simply asked for again
+            if (outcome == BackgroundTasks.Outcome.FAILED) {
+                failedAt.put(index, System.currentTimeMillis());
+            }
+        });
+    }
+}
@@ -7,6 +7,9 @@ public class Login extends JFrame {
     private JPanel mainPanel;
     private JTextField userNameField;
     private JPasswordField passwordField;
+    private JButton loginButton;
+    private final BackgroundTasks tasks = new BackgroundTasks(e ->
+        JOptionPane.showMessageDialog(this, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
 
     public Login() {
         setTitle("Login");
@@ -22,9 +25,10 @@ public class Login extends JFrame {
         
         setContentPane(mainPanel);
 
-        // Initialize the database and default users
-        Database.initializeDatabase();
-        Database.initializeDefaultUsers();
+        // Bring the schema up to date in the background so the window paints at once;
+        // an up-to-date database costs a single PRAGMA read. Logging in waits for it.
+        loginButton.setEnabled(false);
+        tasks.write(Database::initializeDatabase, () -> loginButton.setEnabled(true));
     }
 
         private JPanel createLoginPanel() {
@@ -69,7 +73,7 @@ public class Login extends JFrame {
             gbc.gridx = 1;
             gbc.gridy++;
             gbc.insets = new Insets(20, 10, 10, 10);
-            JButton loginButton = new JButton("Login");
+            loginButton = new JButton("Login");
             loginButton.setFont(new Font("Arial", Font.BOLD, 14));
             loginButton.addActionListener(e -> attemptLogin());
             panel.add(loginButton, gbc);
@@ -81,21 +85,27 @@ public class Login extends JFrame {
         String username = userNameField.getText();
         String password = new String(passwordField.getPassword());
         
-        if (Database.authenticateUser(username, password)) {
-            JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            
-            // Open the appropriate window based on user type
-            if (username.equals("admin")) {
-                openAdminWindow();
+        loginButton.setEnabled(false);
+        loginButton.setText("Logging in...");
+        tasks.write(() -> Database.authenticateUser(username, password), authenticated -> {
+            loginButton.setEnabled(true);
+            loginButton.setText("Login");
+            if (authenticated) {
+                JOptionPane.showMessageDialog(this, "Login successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+                // Open the appropriate window based on user type
+                if (username.equals("admin")) {
+                    openAdminWindow();
+                } else {
+                    openUserWindow();
+                }
+                
+                // Close the login window
+                this.dispose();
             } else {
-                openUserWindow();
+                JOptionPane.showMessageDialog(this, "Invalid username or password", "Error", JOptionPane.ERROR_MESSAGE);
             }
-            
-            // Close the login window
-            this.dispose();
-        } else {
-            JOptionPane.showMessageDialog(this, "Invalid username or password", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void openAdminWindow() {
@@ -0,0 +1,369 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Case-insensitive substring search over a list of texts, one per row. Every distinct
+// trigram maps to the sorted rows containing it, so a query of three or more characters
+// only verifies rows that contain all of its trigrams. Immutable and safe to share;
+// per-view search state lives in a Session.
+//
+// withRow, withAppended and withoutRow return a changed copy that shares everything but
+// the touched posting lists. Internally rows live in slots: a removed row leaves a dead slot
+// behind rather than renumbering every posting list, and results are translated from slots
+// to row numbers on the way out. Once dead slots make up a quarter of the index it is rebuilt.
+public class NGramIndex {
+    private static final int N = 3;
+    // Separates the columns of a row so no trigram spans two of them
+    static final char SEPARATOR = '\u0000';
+
+    // Normalized text per slot, null for a dead slot
+    private final String[] texts;
+    private final Map<Long, int[]> postings;
+    // Dead slots, ascending
+    private final int[] dead;
+
+    private NGramIndex(String[] texts, Map<Long, int[]> postings, int[] dead) {
+        this.texts = texts;
+        this.postings = postings;
+        this.dead = dead;
+    }
+
+    public NGramIndex(List<String> rows) {
+        dead = new int[0];
+        texts = new String[rows.size()];
+        Map<Long, Postings> building = new HashMap<>();
+        for (int row = 0; row < texts.length; row++) {
+            String text = normalize(rows.get(row));
+            texts[row] = text;
+            for (int i = 0; i + N <= text.length(); i++) {
+                long gram = gram(text, i);
+                if (gram >= 0) {
+                    building.computeIfAbsent(gram, k -> new Postings()).add(row);
+                }
+            }
+        }
+        postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<Long, Postings> entry : building.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    // Joins a row's searchable columns into one indexable text
+    public static String join(String... columns) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (column != null) {
+                sb.append(column);
+            }
+            sb.append(SEPARATOR);
+        }
+        return sb.toString();
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Packs three chars into one key; -1 if the window crosses a column boundary
+    private static long gram(String text, int i) {
+        long key = 0;
+        for (int k = 0; k < N; k++) {
+            char c = text.charAt(i + k);
+            if (c == SEPARATOR) {
+                return -1;
+            }
+            key = (key << 16) | c;
+        }
+        return key;
+    }
+
+    private static Set<Long> grams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            long gram = gram(text, i);
+            if (gram >= 0) {
+                grams.add(gram);
+            }
+        }
+        return grams;
+    }
+
+    public int size() {
+        return texts.length - dead.length;
+    }
+
+    // A copy with the text of an existing row replaced
+    public NGramIndex withRow(int row, String text) {
+        int slot = toSlot(row);
+        String normalized = normalize(text);
+        String[] newTexts = texts.clone();
+        newTexts[slot] = normalized;
+        Map<Long, int[]> newPostings = new HashMap<>(postings);
+        Set<Long> before = grams(texts[slot]);
+        Set<Long> after = grams(normalized);
+        for (long gram : before) {
+            if (!after.contains(gram)) {
+                int[] rows = newPostings.get(gram);
+                int at = Arrays.binarySearch(rows, slot);
+                if (rows.length == 1) {
+                    newPostings.remove(gram);
+                } else {
+                    int[] shorter = new int[rows.length - 1];
+                    System.arraycopy(rows, 0, shorter, 0, at);
+                    System.arraycopy(rows, at + 1, shorter, at, rows.length - at - 1);
+                    newPostings.put(gram, shorter);
+                }
+            }
+        }
+        for (long gram : after) {
+            if (!before.contains(gram)) {
+                int[] rows = newPostings.get(gram);
+                if (rows == null) {
+                    newPostings.put(gram, new int[]{slot});
+                } else {
+                    int at = -Arrays.binarySearch(rows, slot) - 1;
+                    int[] longer = new int[rows.length + 1];
+                    System.arraycopy(rows, 0, longer, 0, at);
+                    longer[at] = slot;
+                    System.arraycopy(rows, at, longer, at + 1, rows.length - at);
+                    newPostings.put(gram, longer);
+                }
+            }
+        }
+        return new NGramIndex(newTexts, newPostings, dead);
+    }
+
+    // A copy with a row added after the last one
+    public NGramIndex withAppended(String text) {
+        int slot = texts.length;
+        String normalized = normalize(text);
+        String[] newTexts = Arrays.copyOf(texts, slot + 1);
+        newTexts[slot] = normalized;
+        Map<Long, int[]> newPostings = new HashMap<>(postings);
+        for (long gram : grams(normalized)) {
+            int[] rows = newPostings.get(gram);
+            int[] longer = rows == null ? new int[1] : Arrays.copyOf(rows, rows.length + 1);
+            longer[longer.length - 1] = slot;
+            newPostings.put(gram, longer);
+        }
+        return new NGramIndex(newTexts, newPostings, dead);
+    }
+
+    // A copy without the row; the rows after it move up by one
+    public NGramIndex withoutRow(int row) {
+        int slot = toSlot(row);
+        String[] newTexts = texts.clone();
+        newTexts[slot] = null;
+        int at = -Arrays.binarySearch(dead, slot) - 1;
+        int[] newDead = new int[dead.length + 1];
+        System.arraycopy(dead, 0, newDead, 0, at);
+        newDead[at] = slot;
+        System.arraycopy(dead, at, newDead, at + 1, dead.length - at);
+        if (newDead.length * 4 >= newTexts.length) {
+            List<String> live = new ArrayList<>(newTexts.length - newDead.length);
+            for (String text : newTexts) {
+                if (text != null) {
+                    live.add(text);
+                }
+            }
+            return new NGramIndex(live);
+        }
+        // Posting lists keep the dead slot; toRows drops it from every result
+        return new NGramIndex(newTexts, postings, newDead);
+    }
+
+    // Slot of a live row: the row number plus the dead slots at or before it
+    private int toSlot(int row) {
+        int slot = row;
+        for (int d : dead) {
+            if (d > slot) {
+                break;
+            }
+            slot++;
+        }
+        return slot;
+    }
+
+    // Ascending row numbers to slots, merging with the dead slots in one pass
+    private int[] toSlots(int[] rows) {
+        if (rows == null || dead.length == 0) {
+            return rows;
+        }
+        int[] slots = new int[rows.length];
+        int skipped = 0;
+        for (int i = 0; i < rows.length; i++) {
+            int slot = rows[i] + skipped;
+            while (skipped < dead.length && dead[skipped] <= slot) {
+                skipped++;
+                slot++;
+            }
+            slots[i] = slot;
+        }
+        return slots;
+    }
+
+    // Ascending slots to row numbers, dropping dead ones
+    private int[] toRows(int[] slots) {
+        if (slots == null || dead.length == 0) {
+            return slots;
+        }
+        int[] rows = new int[slots.length];
+        int found = 0;
+        int skipped = 0;
+        for (int slot : slots) {
+            while (skipped < dead.length && dead[skipped] < slot) {
+                skipped++;
+            }
+            if (skipped < dead.length && dead[skipped] == slot) {
+                continue;
+            }
+            rows[found++] = slot - skipped;
+        }
+        return found == rows.length ? rows : Arrays.copyOf(rows, found);
+    }
+
+    // Rows containing the query, in row order; null if the query is empty (everything matches)
+    public int[] search(String query) {
+        return search(query, null);
+    }
+
+    // Rows among within (ascending row numbers, or null for all rows) containing the query.
+    // Whichever is shorter, within or the rows holding the query's rarest trigram, is scanned.
+    public int[] search(String query, int[] within) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return within;
+        }
+        return toRows(searchSlots(q, toSlots(within)));
+    }
+
+    private int[] searchSlots(String q, int[] within) {
+        int[] rarest = rarestPostings(q);
+        if (rarest == null) {
+            return scan(q, within);
+        }
+        if (rarest.length == 0) {
+            return rarest;
+        }
+        if (within != null && within.length <= rarest.length) {
+            return scan(q, within);
+        }
+        // A one-trigram query is answered exactly by its posting list. Otherwise a row with
+        // every trigram may still hold them in a different order, so verify.
+        if (q.length() == N) {
+            return within == null ? rarest : intersect(rarest, within);
+        }
+        int[] matches = scan(q, rarest);
+        return within == null ? matches : intersect(matches, within);
+    }
+
+    // Shortest posting list among the query's trigrams, empty if one never occurs,
+    // or null if the query is too short to have any
+    private int[] rarestPostings(String q) {
+        if (q.length() < N) {
+            return null;
+        }
+        int[] rarest = null;
+        for (int i = 0; i + N <= q.length(); i++) {
+            long gram = gram(q, i);
+            int[] rows = gram < 0 ? null : postings.get(gram);
+            if (rows == null) {
+                return new int[0];
+            }
+            if (rarest == null || rows.length < rarest.length) {
+                rarest = rows;
+            }
+        }
+        return rarest;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int found = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[found++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    private int[] scan(String q, int[] candidates) {
+        int count = candidates == null ? texts.length : candidates.length;
+        int[] matches = new int[Math.min(count, 1024)];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int row = candidates == null ? i : candidates[i];
+            if (texts[row] != null && texts[row].contains(q)) {
+                if (found == matches.length) {
+                    matches = Arrays.copyOf(matches, Math.min(count, found * 2));
+                }
+                matches[found++] = row;
+            }
+        }
+        return found == matches.length ? matches : Arrays.copyOf(matches, found);
+    }
+
+    // Remembers the previous query of one search box, so a query that extends it (adds
+    // characters anywhere) is answered by narrowing the previous result instead of the index
+    public static class Session {
+        private final NGramIndex index;
+        private String lastQuery;
+        private int[] lastResult;
+
+        public Session(NGramIndex index) {
+            this.index = index;
+        }
+
+        public NGramIndex getIndex() {
+            return index;
+        }
+
+        public synchronized int[] search(String query) {
+            String q = normalize(query);
+            int[] result;
+            if (lastQuery != null && !lastQuery.isEmpty() && q.contains(lastQuery)) {
+                result = index.search(q, lastResult);
+            } else {
+                result = index.search(q, null);
+            }
+            lastQuery = q;
+            lastResult = result;
+            return result;
+        }
+    }
+
+    // Growable int list used while building
+    private static class Postings {
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            // Rows are added in order, so a repeated trigram in the same row is the last entry
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.Collections;
+import java.util.List;
+
+// One page of a keyset-paginated query. Fetch the next page by passing the key of
+// the last row on this page as the "after" arguments.
+public class Page<T> {
+    private final List<T> rows;
+    private final boolean hasMore;
+
+    Page(List<T> rows, boolean hasMore) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public T getFirst() {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public T getLast() {
+        return rows.isEmpty() ? null : rows.get(rows.size() - 1);
+    }
+}
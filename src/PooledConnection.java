@@ -0,0 +1,82 @@
+import java.sql.*;
+
+// A connection checked out of a ConnectionPool. Closing it hands it back to the pool
+// instead of closing the underlying SQLite connection.
+public class PooledConnection implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private volatile long lastUsed;
+    private boolean borrowed;
+
+    PooledConnection(ConnectionPool pool, Connection connection, StatementCache statementCache) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    // Returns a cached statement for this SQL text. The statement belongs to the
+    // connection and must not be closed by the caller; close its ResultSets instead.
+    public PreparedStatement prepare(String sql) throws SQLException {
+        SlowQueryLog.statement(sql);
+        return statementCache.prepare(sql);
+    }
+
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void markBorrowed() {
+        borrowed = true;
+    }
+
+    boolean isValid() {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Puts the connection back into a clean state; returns false if it cannot be reused
+    boolean reset() {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            lastUsed = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closeQuietly() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (borrowed) {
+            borrowed = false;
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of Database.provisionUsers. Unlike a BatchResult this is not all-or-nothing:
+// invalid rows fail on their own, and usernames that already exist are skipped.
+public class ProvisionResult {
+    private final int submitted;
+    private final int created;
+    private final int skipped;
+    private final List<BatchResult.RowError> errors;
+
+    ProvisionResult(int submitted, int created, int skipped, List<BatchResult.RowError> errors) {
+        this.submitted = submitted;
+        this.created = created;
+        this.skipped = skipped;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getFailed() {
+        return submitted - created - skipped;
+    }
+
+    public List<BatchResult.RowError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return created + " created, " + skipped + " skipped, " + getFailed() + " failed";
+    }
+}
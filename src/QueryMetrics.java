@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Latency, row and error counters for every named database operation (e.g. "courses.update").
+// Operations are registered once into static fields, so timing a statement costs two
+// nanoTime calls, a histogram increment and a few LongAdder updates, with no allocation.
+// Operations slower than lms.db.slowQueryMs are also written to the SlowQueryLog.
+public class QueryMetrics {
+    private static final Logger log = LoggerFactory.getLogger(QueryMetrics.class);
+    private static final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    // Per-operation snapshots from the previous summary, touched only by the reporting thread
+    private static final Map<String, OperationStats> lastReported = new ConcurrentHashMap<>();
+
+    private QueryMetrics() {
+    }
+
+    public static Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    // Cumulative statistics for every operation that has run at least once, slowest p99 first
+    public static List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (Operation op : operations.values()) {
+            OperationStats s = op.snapshot();
+            if (s.count > 0 || s.errors > 0) {
+                stats.add(s);
+            }
+        }
+        stats.sort((a, b) -> Long.compare(b.histogram.valueAt(0.99), a.histogram.valueAt(0.99)));
+        return stats;
+    }
+
+    // Logs what happened since the previous summary, one line per active operation
+    public static void logSummary() {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        List<OperationStats> interval = new ArrayList<>();
+        for (OperationStats current : snapshot()) {
+            OperationStats previous = lastReported.put(current.name, current);
+            OperationStats delta = previous == null ? current : current.minus(previous);
+            if (delta.count > 0 || delta.errors > 0) {
+                interval.add(delta);
+            }
+        }
+        if (interval.isEmpty()) {
+            return;
+        }
+        log.info("Database activity since last summary ({} operations):", interval.size());
+        for (OperationStats s : interval) {
+            log.info("  {}", s);
+        }
+    }
+
+    public static class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Records a statement that started at startNanos (from System.nanoTime) and touched rows rows
+        public void record(long startNanos, long rowCount) {
+            long elapsed = System.nanoTime() - startNanos;
+            latency.record(elapsed);
+            totalNanos.add(elapsed);
+            rows.add(rowCount);
+            SlowQueryLog.finish(name, elapsed, rowCount);
+        }
+
+        public void recordError(long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            totalNanos.add(elapsed);
+            errors.increment();
+            SlowQueryLog.finish(name, elapsed, -1);
+        }
+
+        OperationStats snapshot() {
+            return new OperationStats(name, latency.snapshot(), rows.sum(), errors.sum(), totalNanos.sum());
+        }
+    }
+
+    public static class OperationStats {
+        public final String name;
+        public final LatencyHistogram.Snapshot histogram;
+        public final long count;
+        public final long rows;
+        public final long errors;
+        public final long totalNanos;
+
+        OperationStats(String name, LatencyHistogram.Snapshot histogram, long rows, long errors, long totalNanos) {
+            this.name = name;
+            this.histogram = histogram;
+            this.count = histogram.getCount();
+            this.rows = rows;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+        }
+
+        OperationStats minus(OperationStats earlier) {
+            return new OperationStats(name, histogram.minus(earlier.histogram), rows - earlier.rows,
+                    errors - earlier.errors, totalNanos - earlier.totalNanos);
+        }
+
+        // Rows produced or changed per second of time spent in the statement
+        public double rowsPerSecond() {
+            return totalNanos == 0 ? 0 : rows * 1e9 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s count=%d errors=%d rows=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms rows/s=%.0f",
+                    name, count, errors, rows, histogram.valueAt(0.50) / 1e6, histogram.valueAt(0.90) / 1e6,
+                    histogram.valueAt(0.99) / 1e6, histogram.getMax() / 1e6, rowsPerSecond());
+        }
+    }
+}
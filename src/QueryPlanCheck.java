@@ -0,0 +1,26 @@
+import java.sql.SQLException;
+import java.util.List;
+
+// Fails with a non-zero exit code if any indexed Database query plans a full table scan.
+// Usage: java QueryPlanCheck
+public class QueryPlanCheck {
+    public static void main(String[] args) {
+        Database.initializeDatabase();
+        try {
+            List<String> problems = Database.findFullScans();
+            if (problems.isEmpty()) {
+                System.out.println("All query plans use an index.");
+                return;
+            }
+            for (String problem : problems) {
+                System.out.println("Full scan: " + problem);
+            }
+            System.exit(1);
+        } catch (SQLException e) {
+            System.out.println("Error checking query plans: " + e.getMessage());
+            System.exit(2);
+        } finally {
+            Database.shutdown();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Course resource files kept by content: each distinct file is stored once, named by the
+// SHA-256 of its bytes, under root/ab/cd/<hash>. Files are hashed while they are copied in,
+// so storing one reads it only once, and identical uploads share a blob. Blobs no row refers
+// to are removed by collectGarbage() once they are older than the grace period, which covers
+// the gap between storing a blob and committing the row that references it. Deciding that an
+// upload is a duplicate and deciding that a blob is garbage both happen under one lock, so a
+// blob is never deleted after a put has handed out its hash.
+public class ResourceStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+    private final long gracePeriodMillis;
+
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder dedupHits = new LongAdder();
+    private final LongAdder dedupBytes = new LongAdder();
+    private final LongAdder collected = new LongAdder();
+    private final LongAdder collectedBytes = new LongAdder();
+    private final AtomicLong lastCollectNanos = new AtomicLong();
+    // Held only for the exists/move/refresh step of put and the check-and-delete of one blob
+    private final Object blobLock = new Object();
+
+    public ResourceStore(Path root, long gracePeriodMillis) {
+        this.root = root;
+        this.gracePeriodMillis = gracePeriodMillis;
+    }
+
+    public static class Blob {
+        public final String hash;
+        public final long size;
+        // True if identical content was already stored and this copy was dropped
+        public final boolean duplicate;
+
+        Blob(String hash, long size, boolean duplicate) {
+            this.hash = hash;
+            this.size = size;
+            this.duplicate = duplicate;
+        }
+    }
+
+    // Copies the file in, hashing it on the way, and keeps it unless the same content is already stored
+    public Blob put(Path source) throws IOException {
+        Path tmpDir = Files.createDirectories(root.resolve("tmp"));
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(source); OutputStream out = Files.newOutputStream(tmp)) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    size += n;
+                }
+            }
+            String hash = hex(digest.digest());
+            Path blob = pathOf(hash);
+            puts.increment();
+            synchronized (blobLock) {
+                if (Files.exists(blob)) {
+                    return duplicate(hash, size, blob);
+                }
+                Files.createDirectories(blob.getParent());
+                try {
+                    Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Another upload of the same content won the race
+                    return duplicate(hash, size, blob);
+                }
+            }
+            return new Blob(hash, size, false);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Called under blobLock
+    private Blob duplicate(String hash, long size, Path blob) throws IOException {
+        // Refresh the timestamp so a collection already underway treats the blob as new
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        dedupHits.increment();
+        dedupBytes.add(size);
+        return new Blob(hash, size, true);
+    }
+
+    public boolean contains(String hash) {
+        return isHash(hash) && Files.isRegularFile(pathOf(hash));
+    }
+
+    // Where the blob lives; the hash is checked so a stored value can never name another path
+    public Path pathOf(String hash) {
+        if (!isHash(hash)) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    static boolean isHash(String value) {
+        if (value == null || value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class CollectResult {
+        public final int scanned;
+        public final int deleted;
+        public final long freedBytes;
+
+        CollectResult(int scanned, int deleted, long freedBytes) {
+            this.scanned = scanned;
+            this.deleted = deleted;
+            this.freedBytes = freedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d blobs scanned, %d deleted, %d bytes freed", scanned, deleted, freedBytes);
+        }
+    }
+
+    // Deletes blobs not in referenced that are older than the grace period, plus abandoned uploads
+    public CollectResult collectGarbage(Set<String> referenced) throws IOException {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - gracePeriodMillis;
+        int[] counts = new int[2];
+        long[] freed = new long[1];
+        forEachBlob((hash, blob) -> {
+            counts[0]++;
+            if (referenced.contains(hash)) {
+                return;
+            }
+            // The age is read and the blob deleted under the lock, so a put that finds the
+            // blob either refreshes it before this check or recreates it after the delete
+            synchronized (blobLock) {
+                if (Files.exists(blob) && Files.getLastModifiedTime(blob).toMillis() < cutoff) {
+                    long size = Files.size(blob);
+                    if (Files.deleteIfExists(blob)) {
+                        counts[1]++;
+                        freed[0] += size;
+                    }
+                }
+            }
+        });
+        Path tmpDir = root.resolve("tmp");
+        if (Files.isDirectory(tmpDir)) {
+            try (DirectoryStream<Path> parts = Files.newDirectoryStream(tmpDir)) {
+                for (Path part : parts) {
+                    try {
+                        if (Files.getLastModifiedTime(part).toMillis() < cutoff) {
+                            Files.deleteIfExists(part);
+                        }
+                    } catch (NoSuchFileException e) {
+                        // A put finished with it while we were listing
+                    }
+                }
+            }
+        }
+        collected.add(counts[1]);
+        collectedBytes.add(freed[0]);
+        lastCollectNanos.set(System.nanoTime() - start);
+        return new CollectResult(counts[0], counts[1], freed[0]);
+    }
+
+    private interface BlobVisitor {
+        void visit(String hash, Path blob) throws IOException;
+    }
+
+    private void forEachBlob(BlobVisitor visitor) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (DirectoryStream<Path> level1 = Files.newDirectoryStream(root, p -> p.getFileName().toString().length() == 2)) {
+            for (Path dir1 : level1) {
+                try (DirectoryStream<Path> level2 = Files.newDirectoryStream(dir1)) {
+                    for (Path dir2 : level2) {
+                        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(dir2)) {
+                            for (Path blob : blobs) {
+                                String hash = blob.getFileName().toString();
+                                if (isHash(hash)) {
+                                    visitor.visit(hash, blob);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public static class Stats {
+        public final long blobs;
+        public final long storedBytes;
+        public final long references;
+        // What the referenced files would take if every reference had its own copy
+        public final long logicalBytes;
+        public final long savedBytes;
+        public final long puts;
+        public final long dedupHits;
+        public final long dedupHitBytes;
+        public final long collected;
+        public final long collectedBytes;
+        public final long lastCollectNanos;
+
+        Stats(long blobs, long storedBytes, long references, long logicalBytes, long savedBytes, long puts,
+              long dedupHits, long dedupHitBytes, long collected, long collectedBytes, long lastCollectNanos) {
+            this.blobs = blobs;
+            this.storedBytes = storedBytes;
+            this.references = references;
+            this.logicalBytes = logicalBytes;
+            this.savedBytes = savedBytes;
+            this.puts = puts;
+            this.dedupHits = dedupHits;
+            this.dedupHitBytes = dedupHitBytes;
+            this.collected = collected;
+            this.collectedBytes = collectedBytes;
+            this.lastCollectNanos = lastCollectNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("blobs=%d stored=%d bytes references=%d logical=%d bytes saved=%d bytes "
+                            + "puts=%d dedupHits=%d (%d bytes) collected=%d (%d bytes) lastCollect=%.1fms",
+                    blobs, storedBytes, references, logicalBytes, savedBytes, puts, dedupHits, dedupHitBytes,
+                    collected, collectedBytes, lastCollectNanos / 1e6);
+        }
+    }
+
+    // referenceCounts maps each hash to the number of rows pointing at it
+    public Stats getStats(Map<String, Long> referenceCounts) throws IOException {
+        long[] totals = new long[5];
+        forEachBlob((hash, blob) -> {
+            long size = Files.size(blob);
+            totals[0]++;
+            totals[1] += size;
+            Long refs = referenceCounts.get(hash);
+            if (refs != null && refs > 0) {
+                totals[2] += refs;
+                totals[3] += refs * size;
+                totals[4] += (refs - 1) * size;
+            }
+        });
+        return new Stats(totals[0], totals[1], totals[2], totals[3], totals[4], puts.sum(), dedupHits.sum(),
+                dedupBytes.sum(), collected.sum(), collectedBytes.sum(), lastCollectNanos.get());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
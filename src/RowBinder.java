@@ -0,0 +1,8 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Binds the fields of a row object to the parameters of an INSERT or UPDATE.
+@FunctionalInterface
+public interface RowBinder<T> {
+    void bind(PreparedStatement pstmt, T row) throws SQLException;
+}
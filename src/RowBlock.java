@@ -0,0 +1,74 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// A window of table rows stored column by column in primitive arrays where possible,
+// so a block of ints or doubles costs one array rather than one boxed object per cell.
+public class RowBlock {
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private final TableView view;
+    private final Object[] columns;
+    private int size;
+
+    RowBlock(TableView view, int capacity) {
+        this.view = view;
+        this.columns = new Object[view.getColumnCount()];
+        for (int c = 0; c < columns.length; c++) {
+            switch (view.getColumnType(c)) {
+                case INT:
+                    columns[c] = new int[capacity];
+                    break;
+                case REAL:
+                    columns[c] = new double[capacity];
+                    break;
+                default:
+                    columns[c] = new String[capacity];
+            }
+        }
+    }
+
+    void append(ResultSet rs) throws SQLException {
+        for (int c = 0; c < columns.length; c++) {
+            switch (view.getColumnType(c)) {
+                case INT:
+                    int i = rs.getInt(c + 1);
+                    ((int[]) columns[c])[size] = rs.wasNull() ? NULL_INT : i;
+                    break;
+                case REAL:
+                    double d = rs.getDouble(c + 1);
+                    ((double[]) columns[c])[size] = rs.wasNull() ? Double.NaN : d;
+                    break;
+                default:
+                    ((String[]) columns[c])[size] = rs.getString(c + 1);
+            }
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object get(int row, int column) {
+        Object values = columns[column];
+        if (values instanceof int[]) {
+            int i = ((int[]) values)[row];
+            return i == NULL_INT ? null : i;
+        }
+        if (values instanceof double[]) {
+            double d = ((double[]) values)[row];
+            return Double.isNaN(d) ? null : d;
+        }
+        return ((String[]) values)[row];
+    }
+
+    // Values of the view's key columns for a row, used to continue reading after it
+    Object[] keyAt(int row) {
+        int[] keyIndexes = view.getKeyIndexes();
+        Object[] key = new Object[keyIndexes.length];
+        for (int k = 0; k < key.length; k++) {
+            key[k] = get(row, keyIndexes[k]);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,7 @@
+// Receives rows one at a time from the Database forEach* methods.
+// The underlying connection stays checked out until the last row is consumed,
+// so implementations should not block or call back into Database.
+@FunctionalInterface
+public interface RowConsumer<T> {
+    void accept(T row);
+}
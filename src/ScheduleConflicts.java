@@ -0,0 +1,260 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Room bookings from the schedule table, one interval tree per (day, room), so checking
+// a new or moved booking for overlaps costs O(log n) instead of a scan of the timetable.
+// Loaded on first use and patched by schedule writes like CourseCatalog. Rows whose times
+// cannot be parsed are kept aside and reported by validateAll().
+public class ScheduleConflicts {
+    public interface Loader {
+        List<ScheduleRow> load() throws SQLException;
+    }
+
+    private final Loader loader;
+    // Null until loaded or after invalidateAll()
+    private Map<String, IntervalTree<ScheduleRow>> trees;
+    private Map<Integer, ScheduleRow> byId;
+
+    public ScheduleConflicts(Loader loader) {
+        this.loader = loader;
+    }
+
+    // Minutes since midnight for H:mm or HH:mm (24:00 allowed as an end), or -1 if unparseable
+    static int minutes(String time) {
+        if (time == null) {
+            return -1;
+        }
+        String t = time.trim();
+        int colon = t.indexOf(':');
+        if (colon < 1 || colon > 2 || t.length() != colon + 3) {
+            return -1;
+        }
+        try {
+            int hours = Integer.parseInt(t.substring(0, colon));
+            int mins = Integer.parseInt(t.substring(colon + 1));
+            if (hours < 0 || mins < 0 || mins > 59 || hours > 24 || (hours == 24 && mins > 0)) {
+                return -1;
+            }
+            return hours * 60 + mins;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Why a booking cannot be placed on the timetable, or null if its fields are usable
+    static String validate(ScheduleRow row) {
+        if (row.getDay() == null || row.getDay().trim().isEmpty()
+                || row.getRoom() == null || row.getRoom().trim().isEmpty()) {
+            return "missing day or room";
+        }
+        int start = minutes(row.getStartTime());
+        int end = minutes(row.getEndTime());
+        if (start < 0 || end < 0) {
+            return "times must be HH:mm";
+        }
+        if (end <= start) {
+            return "end time must be after start time";
+        }
+        return null;
+    }
+
+    private static String key(ScheduleRow row) {
+        return row.getDay().trim().toLowerCase(Locale.ROOT) + '\u0000' + row.getRoom().trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Existing bookings of the same room on the same day that overlap row, ignoring the
+    // booking with row's own id so an update is not reported as clashing with itself
+    public synchronized List<ScheduleRow> find(ScheduleRow row) throws SQLException {
+        if (validate(row) != null) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+        return overlaps(trees, row);
+    }
+
+    private static List<ScheduleRow> overlaps(Map<String, IntervalTree<ScheduleRow>> trees, ScheduleRow row) {
+        IntervalTree<ScheduleRow> tree = trees.get(key(row));
+        if (tree == null) {
+            return Collections.emptyList();
+        }
+        List<ScheduleRow> found = tree.overlapping(minutes(row.getStartTime()), minutes(row.getEndTime()));
+        found.removeIf(other -> other.getId() == row.getId());
+        return found;
+    }
+
+    // Problems with each row of a batch about to be inserted, optionally checking overlaps with
+    // the timetable and with earlier rows of the same batch; rows without a problem are absent
+    public synchronized Map<ScheduleRow, String> checkBatch(List<ScheduleRow> rows, boolean againstTimetable,
+                                                            boolean withinBatch) throws SQLException {
+        Map<ScheduleRow, String> problems = new IdentityHashMap<>();
+        Map<String, IntervalTree<Integer>> batch = new HashMap<>();
+        if (againstTimetable) {
+            ensureLoaded();
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            ScheduleRow row = rows.get(i);
+            String problem = validate(row);
+            if (problem == null) {
+                List<ScheduleRow> existing = againstTimetable ? overlaps(trees, row) : Collections.emptyList();
+                if (!existing.isEmpty()) {
+                    problem = "overlaps " + describe(existing.get(0));
+                } else if (withinBatch) {
+                    IntervalTree<Integer> queued = batch.get(key(row));
+                    List<Integer> earlier = queued == null ? Collections.emptyList()
+                            : queued.overlapping(minutes(row.getStartTime()), minutes(row.getEndTime()));
+                    if (!earlier.isEmpty()) {
+                        problem = "overlaps row " + (earlier.get(0) + 1) + " of this batch";
+                    }
+                }
+                if (withinBatch) {
+                    // Batch rows have no ids yet, so the position stands in for one
+                    batch.computeIfAbsent(key(row), k -> new IntervalTree<>())
+                            .add(minutes(row.getStartTime()), minutes(row.getEndTime()), i, i);
+                }
+            }
+            if (problem != null) {
+                problems.put(row, problem);
+            }
+        }
+        return problems;
+    }
+
+    public synchronized void put(ScheduleRow row) {
+        if (trees == null) {
+            return;
+        }
+        remove(row.getId());
+        byId.put(row.getId(), row);
+        if (validate(row) == null) {
+            trees.computeIfAbsent(key(row), k -> new IntervalTree<>())
+                    .add(minutes(row.getStartTime()), minutes(row.getEndTime()), row.getId(), row);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        if (trees == null) {
+            return;
+        }
+        ScheduleRow old = byId.remove(id);
+        if (old != null && validate(old) == null) {
+            IntervalTree<ScheduleRow> tree = trees.get(key(old));
+            tree.remove(minutes(old.getStartTime()), id);
+            if (tree.size() == 0) {
+                trees.remove(key(old));
+            }
+        }
+    }
+
+    // For writes whose effect on individual rows is not known, e.g. batch inserts
+    public synchronized void invalidateAll() {
+        trees = null;
+        byId = null;
+    }
+
+    // Rereads the whole timetable and lists every pair of overlapping bookings, along
+    // with rows whose times make no sense. O(n log n + k) for k conflicting pairs.
+    public synchronized Report validateAll() throws SQLException {
+        invalidateAll();
+        ensureLoaded();
+        List<Conflict> conflicts = new ArrayList<>();
+        List<ScheduleRow> invalid = new ArrayList<>();
+        for (ScheduleRow row : byId.values()) {
+            if (validate(row) != null) {
+                invalid.add(row);
+            }
+        }
+        for (IntervalTree<ScheduleRow> tree : trees.values()) {
+            for (ScheduleRow row : tree.values()) {
+                for (ScheduleRow other : tree.overlapping(minutes(row.getStartTime()), minutes(row.getEndTime()))) {
+                    // Each pair is seen from both sides; keep it once
+                    if (other.getId() > row.getId()) {
+                        conflicts.add(new Conflict(row, other));
+                    }
+                }
+            }
+        }
+        conflicts.sort((a, b) -> a.first.getId() != b.first.getId()
+                ? Integer.compare(a.first.getId(), b.first.getId())
+                : Integer.compare(a.second.getId(), b.second.getId()));
+        invalid.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return new Report(byId.size(), conflicts, invalid);
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (trees != null) {
+            return;
+        }
+        Map<String, IntervalTree<ScheduleRow>> loadedTrees = new HashMap<>();
+        Map<Integer, ScheduleRow> loadedById = new HashMap<>();
+        for (ScheduleRow row : loader.load()) {
+            loadedById.put(row.getId(), row);
+            if (validate(row) == null) {
+                loadedTrees.computeIfAbsent(key(row), k -> new IntervalTree<>())
+                        .add(minutes(row.getStartTime()), minutes(row.getEndTime()), row.getId(), row);
+            }
+        }
+        trees = loadedTrees;
+        byId = loadedById;
+    }
+
+    static String describe(ScheduleRow row) {
+        return "#" + row.getId() + " " + row.getCourse() + ", " + row.getDay() + " "
+                + row.getStartTime() + "-" + row.getEndTime() + ", room " + row.getRoom();
+    }
+
+    public static class Conflict {
+        public final ScheduleRow first;
+        public final ScheduleRow second;
+
+        Conflict(ScheduleRow first, ScheduleRow second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public int getOverlapMinutes() {
+            return Math.min(minutes(first.getEndTime()), minutes(second.getEndTime()))
+                    - Math.max(minutes(first.getStartTime()), minutes(second.getStartTime()));
+        }
+
+        @Override
+        public String toString() {
+            return describe(first) + " overlaps " + describe(second) + " by " + getOverlapMinutes() + " min";
+        }
+    }
+
+    public static class Report {
+        public final int checked;
+        public final List<Conflict> conflicts;
+        public final List<ScheduleRow> invalid;
+
+        Report(int checked, List<Conflict> conflicts, List<ScheduleRow> invalid) {
+            this.checked = checked;
+            this.conflicts = Collections.unmodifiableList(conflicts);
+            this.invalid = Collections.unmodifiableList(invalid);
+        }
+
+        public boolean isClean() {
+            return conflicts.isEmpty() && invalid.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(checked).append(" bookings checked, ").append(conflicts.size()).append(" conflict(s), ")
+                    .append(invalid.size()).append(" invalid row(s)");
+            for (Conflict conflict : conflicts) {
+                sb.append(System.lineSeparator()).append(conflict);
+            }
+            for (ScheduleRow row : invalid) {
+                sb.append(System.lineSeparator()).append(describe(row)).append(": ").append(validate(row));
+            }
+            return sb.toString();
+        }
+    }
+}
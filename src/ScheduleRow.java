@@ -0,0 +1,54 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ScheduleRow {
+    private final int id;
+    private final String course;
+    private final String day;
+    private final String startTime;
+    private final String endTime;
+    private final String room;
+
+    public ScheduleRow(int id, String course, String day, String startTime, String endTime, String room) {
+        this.id = id;
+        this.course = course;
+        this.day = day;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.room = room;
+    }
+
+    static ScheduleRow from(ResultSet rs) throws SQLException {
+        return new ScheduleRow(
+            rs.getInt("id"),
+            rs.getString("course"),
+            rs.getString("day"),
+            rs.getString("start_time"),
+            rs.getString("end_time"),
+            rs.getString("room"));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+}
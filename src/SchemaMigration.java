@@ -0,0 +1,37 @@
+import java.sql.SQLException;
+
+// One step of the schema history. Steps run in version order, each in its own transaction
+// together with the PRAGMA user_version bump, so a failed step leaves the previous version.
+// Steps should tolerate databases that were set up before versioning (IF NOT EXISTS, etc.).
+public class SchemaMigration {
+    public interface Step {
+        void apply(PooledConnection conn) throws SQLException;
+    }
+
+    private final int version;
+    private final String description;
+    private final Step step;
+
+    public SchemaMigration(int version, String description, Step step) {
+        this.version = version;
+        this.description = description;
+        this.step = step;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    void apply(PooledConnection conn) throws SQLException {
+        step.apply(conn);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " (" + description + ")";
+    }
+}
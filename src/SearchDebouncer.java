@@ -0,0 +1,44 @@
+import java.util.function.Consumer;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Runs a search once the user pauses typing in a field, instead of on every keystroke.
+// The callback runs on the EDT with the field's text and should hand the work to
+// BackgroundTasks, whose groups drop results that a newer search has replaced.
+public class SearchDebouncer {
+    private static final int DELAY_MS = Integer.getInteger("lms.ui.searchDelayMs", 150);
+
+    private SearchDebouncer() {
+    }
+
+    public static void attach(JTextField field, Consumer<String> onSearch) {
+        attach(field, DELAY_MS, onSearch);
+    }
+
+    public static void attach(JTextField field, int delayMs, Consumer<String> onSearch) {
+        Timer timer = new Timer(delayMs, e -> onSearch.accept(field.getText()));
+        timer.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                timer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        // Enter searches right away
+        field.addActionListener(e -> {
+            timer.stop();
+            onSearch.accept(field.getText());
+        });
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Bounded ring buffer of database operations that took longer than lms.db.slowQueryMs.
+// Each thread remembers the SQL and parameters of the statement it last prepared, so
+// fast statements only pay for two field writes; the record and its EXPLAIN QUERY PLAN
+// are only built once an operation crosses the threshold.
+public class SlowQueryLog {
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("lms.db.slowQueryMs", 250L));
+    private static final int CAPACITY = Integer.getInteger("lms.db.slowQueryLogSize", 200);
+    private static final int MAX_CACHED_PLANS = 256;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    // Looks up the plan of a statement on a connection of its own
+    public interface Explainer {
+        List<String> explain(String sql) throws SQLException;
+    }
+
+    private static class Statement {
+        String sql;
+        Object[] params;
+    }
+
+    private static final ThreadLocal<Statement> current = ThreadLocal.withInitial(Statement::new);
+    private static final Map<String, List<String>> plans = new ConcurrentHashMap<>();
+    private static final SlowQuery[] entries = new SlowQuery[Math.max(1, CAPACITY)];
+    // Guarded by entries
+    private static int next;
+    private static long captured;
+    private static volatile Explainer explainer;
+
+    // Plans are looked up off the calling thread; if the queue backs up, slow queries
+    // are still recorded but keep "plan not captured"
+    private static final ExecutorService planner = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(CAPACITY), r -> {
+                Thread t = new Thread(r, "slow-query-log");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private SlowQueryLog() {
+    }
+
+    public static void setExplainer(Explainer e) {
+        explainer = e;
+    }
+
+    public static long getThresholdNanos() {
+        return THRESHOLD_NANOS;
+    }
+
+    // Called for every statement prepared on this thread; parameters are reset until bound
+    static void statement(String sql) {
+        Statement s = current.get();
+        s.sql = sql;
+        s.params = null;
+    }
+
+    // The values are kept by reference and only inspected if the operation turns out slow
+    static void parameters(Object[] params) {
+        current.get().params = params;
+    }
+
+    // Called when an operation finishes; rows is -1 if it failed
+    static void finish(String operation, long elapsedNanos, long rows) {
+        Statement s = current.get();
+        if (elapsedNanos >= THRESHOLD_NANOS) {
+            capture(operation, s.sql, shapes(s.params), elapsedNanos, rows);
+        }
+        s.sql = null;
+        s.params = null;
+    }
+
+    private static void capture(String operation, String sql, List<String> shapes, long elapsedNanos, long rows) {
+        SlowQuery query = new SlowQuery(System.currentTimeMillis(), operation, sql, shapes, elapsedNanos, rows,
+                Thread.currentThread().getName());
+        synchronized (entries) {
+            entries[next] = query;
+            next = (next + 1) % entries.length;
+            captured++;
+        }
+        if (sql == null) {
+            return;
+        }
+        List<String> plan = plans.get(sql);
+        if (plan != null) {
+            query.plan = plan;
+        } else if (explainer != null) {
+            planner.execute(() -> query.plan = explain(sql));
+        }
+    }
+
+    private static List<String> explain(String sql) {
+        List<String> plan = plans.get(sql);
+        if (plan != null) {
+            return plan;
+        }
+        try {
+            plan = Collections.unmodifiableList(new ArrayList<>(explainer.explain(sql)));
+        } catch (SQLException | RuntimeException e) {
+            // Not cached, so a later capture can try again
+            return Collections.singletonList("EXPLAIN failed: " + e.getMessage());
+        }
+        if (plans.size() >= MAX_CACHED_PLANS) {
+            plans.clear();
+        }
+        plans.put(sql, plan);
+        return plan;
+    }
+
+    // Type and size of each bound value; the values themselves may be passwords or grades
+    private static List<String> shapes(Object[] params) {
+        if (params == null) {
+            return Collections.emptyList();
+        }
+        List<String> shapes = new ArrayList<>(params.length);
+        for (Object value : params) {
+            if (value == null) {
+                shapes.add("NULL");
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                shapes.add("INTEGER");
+            } else if (value instanceof Number) {
+                shapes.add("REAL");
+            } else if (value instanceof CharSequence) {
+                shapes.add("TEXT(" + ((CharSequence) value).length() + ")");
+            } else if (value instanceof byte[]) {
+                shapes.add("BLOB(" + ((byte[]) value).length + ")");
+            } else {
+                shapes.add(value.getClass().getSimpleName());
+            }
+        }
+        return shapes;
+    }
+
+    // Captured queries, oldest first
+    public static List<SlowQuery> getEntries() {
+        List<SlowQuery> result = new ArrayList<>(entries.length);
+        synchronized (entries) {
+            for (int i = 0; i < entries.length; i++) {
+                SlowQuery query = entries[(next + i) % entries.length];
+                if (query != null) {
+                    result.add(query);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static long getCapturedCount() {
+        synchronized (entries) {
+            return captured;
+        }
+    }
+
+    public static void clear() {
+        synchronized (entries) {
+            Arrays.fill(entries, null);
+            next = 0;
+        }
+    }
+
+    public static void dump(Writer out) throws IOException {
+        List<SlowQuery> queries = getEntries();
+        out.write(String.format("Slow queries (>= %d ms): showing %d of %d captured%n",
+                TimeUnit.NANOSECONDS.toMillis(THRESHOLD_NANOS), queries.size(), getCapturedCount()));
+        for (SlowQuery query : queries) {
+            out.write(System.lineSeparator());
+            out.write(query.toString());
+        }
+        out.flush();
+    }
+
+    public static void dump(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            dump(out);
+        }
+    }
+
+    public static class SlowQuery {
+        public final long timestamp;
+        public final String operation;
+        public final String sql;
+        public final List<String> parameterShapes;
+        public final long durationNanos;
+        public final long rows;
+        public final String thread;
+        // Filled in by the slow-query-log thread shortly after capture
+        private volatile List<String> plan;
+
+        SlowQuery(long timestamp, String operation, String sql, List<String> parameterShapes,
+                  long durationNanos, long rows, String thread) {
+            this.timestamp = timestamp;
+            this.operation = operation;
+            this.sql = sql;
+            this.parameterShapes = parameterShapes;
+            this.durationNanos = durationNanos;
+            this.rows = rows;
+            this.thread = thread;
+        }
+
+        public List<String> getPlan() {
+            List<String> p = plan;
+            return p == null ? Collections.emptyList() : p;
+        }
+
+        @Override
+        public String toString() {
+            String n = System.lineSeparator();
+            StringBuilder sb = new StringBuilder();
+            sb.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()).format(TIME_FORMAT))
+                .append(String.format(" %s %.3fms rows=%s thread=%s", operation, durationNanos / 1e6,
+                        rows < 0 ? "error" : String.valueOf(rows), thread)).append(n);
+            sb.append("  sql: ").append(sql == null ? "(not a prepared statement)" : sql).append(n);
+            sb.append("  params: ").append(parameterShapes).append(n);
+            List<String> p = plan;
+            if (p == null) {
+                sb.append("  plan: ").append(sql == null ? "n/a" : "not captured").append(n);
+            } else {
+                sb.append("  plan:").append(n);
+                for (String line : p) {
+                    sb.append("    ").append(line).append(n);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.sql.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU cache of prepared statements for a single connection, keyed by SQL text.
+// Not thread safe: a connection is only ever used by the thread that borrowed it.
+public class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt != null && !pstmt.isClosed()) {
+            hits.increment();
+            pstmt.clearParameters();
+            return pstmt;
+        }
+        misses.increment();
+        pstmt = connection.prepareStatement(sql);
+        statements.put(sql, pstmt);
+        evictEldest();
+        return pstmt;
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            closeQuietly(it.next().getValue());
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    void clear() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing statement: " + e.getMessage());
+        }
+    }
+}
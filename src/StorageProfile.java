@@ -0,0 +1,82 @@
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Named set of SQLite pragmas applied to every connection the pool opens, plus the
+// WAL checkpoint policy that keeps the -wal file from growing without bound.
+public class StorageProfile {
+    public static final StorageProfile DURABLE =
+            new StorageProfile("durable", "WAL", "FULL", -16_000, 0L, "DEFAULT", 10_000, 1_000, 16L << 20);
+    public static final StorageProfile BALANCED =
+            new StorageProfile("balanced", "WAL", "NORMAL", -32_000, 256L << 20, "MEMORY", 5_000, 1_000, 64L << 20);
+    public static final StorageProfile BULK_LOAD =
+            new StorageProfile("bulk-load", "WAL", "OFF", -131_072, 1L << 30, "MEMORY", 30_000, 10_000, 256L << 20);
+
+    private static final Map<String, StorageProfile> PRESETS = new LinkedHashMap<>();
+
+    static {
+        PRESETS.put(DURABLE.name, DURABLE);
+        PRESETS.put(BALANCED.name, BALANCED);
+        PRESETS.put(BULK_LOAD.name, BULK_LOAD);
+    }
+
+    private final String name;
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSize;           // pages if positive, KiB if negative
+    private final long mmapSize;           // bytes
+    private final String tempStore;
+    private final int busyTimeoutMillis;
+    private final int walAutoCheckpointPages;
+    private final long walCheckpointBytes; // force a TRUNCATE checkpoint above this WAL size
+
+    public StorageProfile(String name, String journalMode, String synchronous, int cacheSize, long mmapSize,
+                          String tempStore, int busyTimeoutMillis, int walAutoCheckpointPages, long walCheckpointBytes) {
+        this.name = name;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+        this.walCheckpointBytes = walCheckpointBytes;
+    }
+
+    public static StorageProfile named(String name) {
+        StorageProfile profile = PRESETS.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown storage profile: " + name + " (expected one of " + PRESETS.keySet() + ")");
+        }
+        return profile;
+    }
+
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout first so the remaining pragmas wait out a concurrent writer
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = " + journalMode);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+            stmt.execute("PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages);
+            stmt.execute("PRAGMA journal_size_limit = " + walCheckpointBytes);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWalCheckpointBytes() {
+        return walCheckpointBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[journal_mode=" + journalMode + " synchronous=" + synchronous + " cache_size=" + cacheSize +
+                " mmap_size=" + mmapSize + " temp_store=" + tempStore + " busy_timeout=" + busyTimeoutMillis +
+                " wal_autocheckpoint=" + walAutoCheckpointPages + " checkpoint_at=" + walCheckpointBytes + "]";
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+// Describes how a table is read in windows for LazyTableModel: which columns to show,
+// how to store them, and the unique key the rows are ordered by.
+public class TableView {
+    public enum ColumnType { INT, REAL, TEXT }
+
+    private static final ColumnType INT = ColumnType.INT;
+    private static final ColumnType REAL = ColumnType.REAL;
+    private static final ColumnType TEXT = ColumnType.TEXT;
+
+    public static final TableView COURSES = new TableView("courses",
+            new String[]{"id", "name", "chapter", "lesson", "resource_type", "file_path"},
+            new ColumnType[]{INT, TEXT, TEXT, TEXT, TEXT, TEXT},
+            new String[]{"id"}, false, "courses_fts");
+    public static final TableView SCHEDULE = new TableView("schedule",
+            new String[]{"id", "course", "day", "start_time", "end_time", "room"},
+            new ColumnType[]{INT, TEXT, TEXT, TEXT, TEXT, TEXT},
+            new String[]{"id"}, false);
+    public static final TableView GRADES = new TableView("grades",
+            new String[]{"id", "student_id", "course_id", "grade"},
+            new ColumnType[]{INT, INT, INT, REAL},
+            new String[]{"id"}, false);
+    public static final TableView ANNOUNCEMENTS = new TableView("announcements",
+            new String[]{"id", "title", "content", "date"},
+            new ColumnType[]{INT, TEXT, TEXT, TEXT},
+            new String[]{"date", "id"}, true, "announcements_fts");
+
+    private final String table;
+    private final String[] columns;
+    private final ColumnType[] types;
+    private final String[] keyColumns;
+    private final int[] keyIndexes;
+    private final boolean descending;
+    private final String fullTextTable;
+    private final String search;
+
+    public TableView(String table, String[] columns, ColumnType[] types, String[] keyColumns, boolean descending) {
+        this(table, columns, types, keyColumns, descending, null);
+    }
+
+    // fullTextTable names an FTS5 index whose rowids are this table's rowids; searches use it instead of LIKE
+    public TableView(String table, String[] columns, ColumnType[] types, String[] keyColumns, boolean descending,
+                     String fullTextTable) {
+        this(table, columns, types, keyColumns, descending, fullTextTable, null);
+    }
+
+    private TableView(String table, String[] columns, ColumnType[] types, String[] keyColumns, boolean descending,
+                      String fullTextTable, String search) {
+        this.table = table;
+        this.fullTextTable = fullTextTable;
+        this.search = search;
+        this.columns = columns;
+        this.types = types;
+        this.keyColumns = keyColumns;
+        this.descending = descending;
+        this.keyIndexes = new int[keyColumns.length];
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyIndexes[k] = indexOf(keyColumns[k]);
+            if (keyIndexes[k] < 0) {
+                throw new IllegalArgumentException("Key column " + keyColumns[k] + " must be one of the view's columns");
+            }
+        }
+    }
+
+    private int indexOf(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The same view restricted to rows matching the term, ignoring case; an empty term means
+    // no restriction. With a full-text index every word of the term must start a word in an
+    // indexed column; otherwise any column must contain the term literally.
+    public TableView withSearch(String term) {
+        String trimmed = term == null ? "" : term.trim();
+        return new TableView(table, columns, types, keyColumns, descending, fullTextTable,
+                trimmed.isEmpty() ? null : trimmed);
+    }
+
+    // FTS5 query requiring every word of the text as a prefix, or null if it has no words.
+    // Words are quoted, so operators and punctuation in the text are never interpreted.
+    static String fullTextQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            query.append(query.length() == 0 ? "" : " ").append('"').append(text, start, i).append("\"*");
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    private boolean usesFullText() {
+        return fullTextTable != null && fullTextQuery(search) != null;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    int[] getKeyIndexes() {
+        return keyIndexes;
+    }
+
+    String countSql() {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(table);
+        if (search != null) {
+            sql.append(" WHERE ").append(searchCondition());
+        }
+        return sql.toString();
+    }
+
+    // SELECT for one window: rows strictly after the given key (if any), then skip and limit.
+    // Parameters are bound in the order: search parameters, key values, limit, offset.
+    String windowSql(boolean afterKey) {
+        String order = descending ? " DESC" : "";
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns)).append(" FROM ").append(table);
+        String separator = " WHERE ";
+        if (search != null) {
+            sql.append(separator).append(searchCondition());
+            separator = " AND ";
+        }
+        if (afterKey) {
+            String comparison = descending ? " < " : " > ";
+            if (keyColumns.length == 1) {
+                sql.append(separator).append(keyColumns[0]).append(comparison).append('?');
+            } else {
+                sql.append(separator).append('(').append(String.join(", ", keyColumns)).append(')').append(comparison).append('(');
+                for (int k = 0; k < keyColumns.length; k++) {
+                    sql.append(k == 0 ? "?" : ", ?");
+                }
+                sql.append(')');
+            }
+        }
+        sql.append(" ORDER BY ");
+        for (int k = 0; k < keyColumns.length; k++) {
+            sql.append(k == 0 ? "" : ", ").append(keyColumns[k]).append(order);
+        }
+        return sql.append(" LIMIT ? OFFSET ?").toString();
+    }
+
+    private String searchCondition() {
+        if (usesFullText()) {
+            return "rowid IN (SELECT rowid FROM " + fullTextTable + " WHERE " + fullTextTable + " MATCH ?)";
+        }
+        StringBuilder condition = new StringBuilder("(");
+        for (int c = 0; c < columns.length; c++) {
+            condition.append(c == 0 ? "" : " OR ").append(columns[c]).append(" LIKE ? ESCAPE '\\'");
+        }
+        return condition.append(')').toString();
+    }
+
+    // Values for the search placeholders: the MATCH query, or one LIKE pattern per column
+    Object[] searchParameters() {
+        if (search == null) {
+            return new Object[0];
+        }
+        if (usesFullText()) {
+            return new Object[]{fullTextQuery(search)};
+        }
+        String pattern = "%" + search.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        Object[] params = new Object[columns.length];
+        Arrays.fill(params, pattern);
+        return params;
+    }
+}
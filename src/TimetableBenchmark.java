@@ -0,0 +1,50 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Measures TimetableGenerator on synthetic weeks of growing size: five days of nine hourly
+// slots with lunch blocked, one room per four courses, two to five hours per course. Reports
+// how long until every session was placed and the score reached within the budget, for
+// each thread count, to show how solve time and quality scale with problem size and cores.
+// Usage: java TimetableBenchmark [courses,...] [seconds per run] [threads,...]
+public class TimetableBenchmark {
+    private static final List<String> DAYS = Arrays.asList("Monday", "Tuesday", "Wednesday", "Thursday", "Friday");
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10,25,50,100,200";
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        String threadCounts = args.length > 2 ? args[2]
+                : "1," + Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%8s %8s %8s %8s %14s %8s %10s %10s %10s %12s%n",
+                "courses", "sessions", "cells", "threads", "complete ms", "cost", "util %", "roomGaps", "unplaced", "moves/s");
+        for (String size : sizes.split(",")) {
+            for (String threads : threadCounts.split(",")) {
+                run(Integer.parseInt(size.trim()), Integer.parseInt(threads.trim()), Math.round(seconds * 1000));
+            }
+        }
+    }
+
+    private static void run(int courseCount, int threads, long budgetMillis) {
+        List<TimetableGenerator.Requirement> courses = new ArrayList<>();
+        for (int i = 0; i < courseCount; i++) {
+            courses.add(new TimetableGenerator.Requirement("Course " + i, 2 + i % 4));
+        }
+        List<String> rooms = new ArrayList<>();
+        for (int i = 0; i < Math.max(2, courseCount / 4); i++) {
+            rooms.add("Room " + (i + 1));
+        }
+        TimetableGenerator.Problem problem = new TimetableGenerator.Problem(courses, rooms, DAYS, "08:00", "17:00", 60);
+        for (String day : DAYS) {
+            problem.block(day, "12:00", "13:00", null);
+        }
+
+        TimetableGenerator.Result result = new TimetableGenerator(threads).solve(problem, budgetMillis, 42);
+        int unplaced = result.unplaced.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("%8d %8d %8d %8d %14s %8d %10.1f %10d %10d %12.0f%n",
+                courseCount, result.rows.size() + unplaced, DAYS.size() * problem.slots * rooms.size(), threads,
+                result.firstCompleteNanos < 0 ? "-" : String.format("%.1f", result.firstCompleteNanos / 1e6),
+                result.cost, result.utilization * 100, result.roomGaps, unplaced,
+                result.iterations / (result.elapsedNanos / 1e9));
+    }
+}
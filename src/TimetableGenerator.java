@@ -0,0 +1,648 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Builds a weekly timetable from required hours per course. The week is cut into equal
+// slots; hard constraints are one session per room and slot, one session per course and
+// slot, and no session in a blocked slot. Each worker of a fork-join pool builds a greedy
+// timetable from its own seed and improves it by simulated annealing until the time budget
+// runs out; the cheapest result wins. Cost is, in order of weight: unplaced sessions, a
+// course having more sessions on one day than an even spread needs, idle slots between a
+// course's sessions on a day, idle slots in a room between its first and last session of
+// a day, and each room opened on a day (so sessions pack into fewer, fuller rooms).
+public class TimetableGenerator {
+    static final int UNPLACED_WEIGHT = 1000;
+    static final int SPREAD_WEIGHT = 5;
+    static final int COURSE_GAP_WEIGHT = 3;
+    static final int ROOM_GAP_WEIGHT = 2;
+    static final int ROOM_OPEN_WEIGHT = 1;
+    // Starting temperature of the annealing; a move costing this much is taken about a third of the time
+    private static final double START_TEMPERATURE = 2.0;
+    private static final int CHECK_CLOCK_EVERY = 1024;
+
+    private final int threads;
+
+    public TimetableGenerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.threads = threads;
+    }
+
+    public static class Requirement {
+        final String course;
+        final int hours;
+
+        public Requirement(String course, int hours) {
+            if (course == null || course.trim().isEmpty()) {
+                throw new IllegalArgumentException("Course name is required");
+            }
+            if (hours < 1) {
+                throw new IllegalArgumentException("Weekly hours for " + course + " must be at least 1");
+            }
+            this.course = course.trim();
+            this.hours = hours;
+        }
+    }
+
+    // The week to fill: days, rooms and a slot grid from dayStart to dayEnd, less any blocked slots
+    public static class Problem {
+        final List<Requirement> courses;
+        final List<String> rooms;
+        final List<String> days;
+        final int dayStart;
+        final int slotMinutes;
+        final int slots;
+        final int sessions;
+        // Indexed by cell(day, slot, room); a blocked cell takes no session
+        final boolean[] blocked;
+        // Indexed by (course * days + day) * slots + slot; the course is busy elsewhere
+        final boolean[] courseBusy;
+
+        public Problem(List<Requirement> courses, List<String> rooms, List<String> days,
+                       String dayStart, String dayEnd, int slotMinutes) {
+            if (courses.isEmpty() || rooms.isEmpty() || days.isEmpty()) {
+                throw new IllegalArgumentException("Courses, rooms and days are all required");
+            }
+            int start = ScheduleConflicts.minutes(dayStart);
+            int end = ScheduleConflicts.minutes(dayEnd);
+            if (start < 0 || end < 0 || end <= start) {
+                throw new IllegalArgumentException("The day must start and end at HH:mm, end after start");
+            }
+            if (slotMinutes < 5 || slotMinutes > end - start) {
+                throw new IllegalArgumentException("Slot length must be between 5 minutes and the length of the day");
+            }
+            this.courses = new ArrayList<>(courses);
+            this.rooms = new ArrayList<>(rooms);
+            this.days = new ArrayList<>(days);
+            this.dayStart = start;
+            this.slotMinutes = slotMinutes;
+            this.slots = (end - start) / slotMinutes;
+            int total = 0;
+            for (Requirement course : courses) {
+                total += sessionsFor(course);
+            }
+            this.sessions = total;
+            this.blocked = new boolean[days.size() * slots * rooms.size()];
+            this.courseBusy = new boolean[courses.size() * days.size() * slots];
+        }
+
+        int sessionsFor(Requirement course) {
+            return (course.hours * 60 + slotMinutes - 1) / slotMinutes;
+        }
+
+        int cell(int day, int slot, int room) {
+            return (day * slots + slot) * rooms.size() + room;
+        }
+
+        // Keeps every slot overlapping [start, end) on the day free; room null blocks all rooms
+        public void block(String day, String start, String end, String room) {
+            int d = indexOf(days, day, "day");
+            int r = room == null ? -1 : indexOf(rooms, room, "room");
+            for (int slot : overlappingSlots(start, end)) {
+                for (int i = 0; i < rooms.size(); i++) {
+                    if (r < 0 || r == i) {
+                        blocked[cell(d, slot, i)] = true;
+                    }
+                }
+            }
+        }
+
+        // The course is already taught at this time, e.g. by a booking that is being kept;
+        // unknown courses and days are ignored
+        public void busy(String course, String day, String start, String end) {
+            int d = find(days, day);
+            int c = -1;
+            for (int i = 0; i < courses.size(); i++) {
+                if (courses.get(i).course.equalsIgnoreCase(course == null ? "" : course.trim())) {
+                    c = i;
+                }
+            }
+            if (c < 0 || d < 0) {
+                return;
+            }
+            for (int slot : overlappingSlots(start, end)) {
+                courseBusy[(c * days.size() + d) * slots + slot] = true;
+            }
+        }
+
+        // Treats an existing booking as fixed: its room is taken and its course busy for the
+        // slots it overlaps. Bookings on other days or rooms, or with bad times, only mark the course.
+        public void keep(ScheduleRow booking) {
+            if (ScheduleConflicts.validate(booking) != null) {
+                return;
+            }
+            if (find(days, booking.getDay()) >= 0 && find(rooms, booking.getRoom()) >= 0) {
+                block(booking.getDay(), booking.getStartTime(), booking.getEndTime(), booking.getRoom());
+            }
+            busy(booking.getCourse(), booking.getDay(), booking.getStartTime(), booking.getEndTime());
+        }
+
+        private List<Integer> overlappingSlots(String start, String end) {
+            int from = ScheduleConflicts.minutes(start);
+            int to = ScheduleConflicts.minutes(end);
+            if (from < 0 || to <= from) {
+                throw new IllegalArgumentException("Invalid time range " + start + "-" + end);
+            }
+            List<Integer> result = new ArrayList<>();
+            for (int slot = 0; slot < slots; slot++) {
+                int slotStart = dayStart + slot * slotMinutes;
+                if (slotStart < to && slotStart + slotMinutes > from) {
+                    result.add(slot);
+                }
+            }
+            return result;
+        }
+
+        private static int find(List<String> names, String name) {
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).equalsIgnoreCase(name == null ? "" : name.trim())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int indexOf(List<String> names, String name, String what) {
+            int i = find(names, name);
+            if (i < 0) {
+                throw new IllegalArgumentException("Unknown " + what + " " + name);
+            }
+            return i;
+        }
+
+        String time(int slot) {
+            int minutes = dayStart + slot * slotMinutes;
+            return String.format("%02d:%02d", minutes / 60, minutes % 60);
+        }
+    }
+
+    public static class Result {
+        public final List<ScheduleRow> rows;
+        public final long cost;
+        // Sessions that could not be placed, per course
+        public final Map<String, Integer> unplaced;
+        // Occupied share of the unblocked slots of every room that is used on a day
+        public final double utilization;
+        public final int roomGaps;
+        public final int courseGaps;
+        public final int spreadExcess;
+        public final int workers;
+        public final long iterations;
+        public final long elapsedNanos;
+        // Time until some worker first had every session placed; -1 if none did
+        public final long firstCompleteNanos;
+
+        Result(List<ScheduleRow> rows, long cost, Map<String, Integer> unplaced, double utilization, int roomGaps,
+               int courseGaps, int spreadExcess, int workers, long iterations, long elapsedNanos, long firstCompleteNanos) {
+            this.rows = Collections.unmodifiableList(rows);
+            this.cost = cost;
+            this.unplaced = Collections.unmodifiableMap(unplaced);
+            this.utilization = utilization;
+            this.roomGaps = roomGaps;
+            this.courseGaps = courseGaps;
+            this.spreadExcess = spreadExcess;
+            this.workers = workers;
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+            this.firstCompleteNanos = firstCompleteNanos;
+        }
+
+        public boolean isComplete() {
+            return unplaced.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d sessions placed, %d unplaced, cost %d, utilization %.0f%%, "
+                            + "%d room gaps, %d course gaps, %d over spread, %d workers, %d moves in %.1f s",
+                    rows.size(), unplaced.values().stream().mapToInt(Integer::intValue).sum(), cost,
+                    utilization * 100, roomGaps, courseGaps, spreadExcess, workers, iterations, elapsedNanos / 1e9);
+        }
+    }
+
+    public Result solve(Problem problem, long budgetMillis, long seed) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+        // Every room-day holds at most `slots` sessions, so this many must be opened
+        long lowerBound = (long) ROOM_OPEN_WEIGHT * ((problem.sessions + problem.slots - 1) / problem.slots);
+        AtomicLong bestCost = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong firstComplete = new AtomicLong(-1);
+
+        List<ForkJoinTask<Search>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                Search search = new Search(problem, new Random(seed + i));
+                tasks.add(pool.submit(() -> {
+                    search.run(start, deadline, lowerBound, bestCost, firstComplete);
+                    return search;
+                }));
+            }
+            Search best = null;
+            long iterations = 0;
+            for (ForkJoinTask<Search> task : tasks) {
+                Search search = task.get();
+                iterations += search.iterations;
+                if (best == null || search.bestCost < best.bestCost) {
+                    best = search;
+                }
+            }
+            return best.result(threads, iterations, System.nanoTime() - start, firstComplete.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating the timetable", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Timetable search failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // One worker's timetable. Costs are cached per room-day and course-day so a move only
+    // rescans the few rows it touches.
+    private static class Search {
+        private final Problem p;
+        private final Random random;
+        private final int days;
+        private final int slots;
+        private final int rooms;
+        private final int[] sessionCourse;
+        private final int[] maxPerDay;
+        // Whether any room is free at each slot of the week
+        private final boolean[] slotOpen;
+        // Position of each session as a cell index, -1 if unplaced
+        private final int[] position;
+        private final int[] cells;
+        private final boolean[] courseTaken;
+        private final long[] roomDayCost;
+        private final long[] courseDayCost;
+        private int unplacedCount;
+        private long cost;
+
+        private int[] bestPosition;
+        long bestCost = Long.MAX_VALUE;
+        long iterations;
+
+        // Undo log: sessions moved since begin(), with the cell each came from
+        private final int[] movedSessions = new int[2];
+        private final int[] movedFrom = new int[2];
+        private int movedCount;
+        // Scratch lists of the room-days and course-days a move touched, with their old costs
+        private final int[] touchedRoomDays = new int[4];
+        private final long[] oldRoomDayCost = new long[4];
+        private int touchedRoomDayCount;
+        private final int[] touchedCourseDays = new int[4];
+        private final long[] oldCourseDayCost = new long[4];
+        private int touchedCourseDayCount;
+
+        Search(Problem p, Random random) {
+            this.p = p;
+            this.random = random;
+            this.days = p.days.size();
+            this.slots = p.slots;
+            this.rooms = p.rooms.size();
+            sessionCourse = new int[p.sessions];
+            maxPerDay = new int[p.courses.size()];
+            int n = 0;
+            for (int c = 0; c < p.courses.size(); c++) {
+                int count = p.sessionsFor(p.courses.get(c));
+                maxPerDay[c] = (count + days - 1) / days;
+                for (int i = 0; i < count; i++) {
+                    sessionCourse[n++] = c;
+                }
+            }
+            slotOpen = new boolean[days * slots];
+            for (int cell = 0; cell < p.blocked.length; cell++) {
+                slotOpen[cell / rooms] |= !p.blocked[cell];
+            }
+            position = new int[p.sessions];
+            Arrays.fill(position, -1);
+            cells = new int[days * slots * rooms];
+            Arrays.fill(cells, -1);
+            courseTaken = new boolean[p.courseBusy.length];
+            roomDayCost = new long[days * rooms];
+            courseDayCost = new long[p.courses.size() * days];
+            unplacedCount = p.sessions;
+            cost = (long) UNPLACED_WEIGHT * unplacedCount;
+        }
+
+        void run(long start, long deadline, long lowerBound, AtomicLong sharedBest, AtomicLong firstComplete) {
+            construct();
+            remember(start, sharedBest, firstComplete);
+            double span = Math.max(1, deadline - start);
+            double temperature = START_TEMPERATURE;
+            while (true) {
+                if (iterations % CHECK_CLOCK_EVERY == 0) {
+                    long now = System.nanoTime();
+                    // Stop when out of time, or when any worker has reached the best possible cost
+                    if (now >= deadline || sharedBest.get() <= lowerBound || Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    temperature = START_TEMPERATURE * Math.max(0.01, 1 - (now - start) / span);
+                }
+                iterations++;
+                long before = cost;
+                if (!move()) {
+                    continue;
+                }
+                long delta = cost - before;
+                if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                    if (cost < bestCost) {
+                        remember(start, sharedBest, firstComplete);
+                    }
+                } else {
+                    undo();
+                }
+            }
+        }
+
+        // Greedy start: sessions of the busiest courses first, each into its cheapest free cell
+        private void construct() {
+            Integer[] order = new Integer[p.sessions];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Collections.shuffle(Arrays.asList(order), random);
+            Arrays.sort(order, (a, b) -> Integer.compare(
+                    p.sessionsFor(p.courses.get(sessionCourse[b])), p.sessionsFor(p.courses.get(sessionCourse[a]))));
+            for (int session : order) {
+                int bestCell = -1;
+                long bestDelta = Long.MAX_VALUE;
+                int ties = 0;
+                for (int cell = 0; cell < cells.length; cell++) {
+                    if (!canPlace(session, cell)) {
+                        continue;
+                    }
+                    long before = cost;
+                    begin();
+                    place(session, cell);
+                    long delta = cost - before;
+                    undo();
+                    // Reservoir sampling keeps ties evenly random so workers explore differently
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestCell = cell;
+                        ties = 1;
+                    } else if (delta == bestDelta && random.nextInt(++ties) == 0) {
+                        bestCell = cell;
+                    }
+                }
+                if (bestCell >= 0) {
+                    begin();
+                    place(session, bestCell);
+                }
+            }
+        }
+
+        // Applies a random relocation or swap, recording what to undo; false if none was possible
+        private boolean move() {
+            int session = random.nextInt(p.sessions);
+            int target = random.nextInt(cells.length);
+            int from = position[session];
+            if (from == target || p.blocked[target]) {
+                return false;
+            }
+            int other = cells[target];
+            begin();
+            if (from >= 0) {
+                remove(session);
+            }
+            if (other >= 0) {
+                remove(other);
+            }
+            if (canPlace(session, target) && (other < 0 || from < 0 || canPlace(other, from))) {
+                place(session, target);
+                // An unplaced session can bump a placed one out; the search may place it again later
+                if (other >= 0 && from >= 0) {
+                    place(other, from);
+                }
+                return true;
+            }
+            undo();
+            return false;
+        }
+
+        private boolean canPlace(int session, int cell) {
+            if (cells[cell] >= 0 || p.blocked[cell]) {
+                return false;
+            }
+            int slotOfWeek = cell / rooms;
+            int busy = sessionCourse[session] * days * slots + slotOfWeek;
+            return !courseTaken[busy] && !p.courseBusy[busy];
+        }
+
+        private void begin() {
+            movedCount = 0;
+            touchedRoomDayCount = 0;
+            touchedCourseDayCount = 0;
+        }
+
+        private void undo() {
+            // Empty every cell first: in a swap each session's old cell now holds the other
+            for (int i = 0; i < movedCount; i++) {
+                setCell(movedSessions[i], position[movedSessions[i]], false);
+            }
+            for (int i = 0; i < movedCount; i++) {
+                setCell(movedSessions[i], movedFrom[i], true);
+            }
+            for (int i = 0; i < touchedRoomDayCount; i++) {
+                cost += oldRoomDayCost[i] - roomDayCost[touchedRoomDays[i]];
+                roomDayCost[touchedRoomDays[i]] = oldRoomDayCost[i];
+            }
+            for (int i = 0; i < touchedCourseDayCount; i++) {
+                cost += oldCourseDayCost[i] - courseDayCost[touchedCourseDays[i]];
+                courseDayCost[touchedCourseDays[i]] = oldCourseDayCost[i];
+            }
+            movedCount = 0;
+            touchedRoomDayCount = 0;
+            touchedCourseDayCount = 0;
+        }
+
+        private void place(int session, int cell) {
+            log(session);
+            setCell(session, cell, true);
+            rescore(session, cell);
+        }
+
+        private void remove(int session) {
+            int cell = position[session];
+            log(session);
+            setCell(session, cell, false);
+            rescore(session, cell);
+        }
+
+        private void log(int session) {
+            for (int i = 0; i < movedCount; i++) {
+                if (movedSessions[i] == session) {
+                    return;
+                }
+            }
+            movedSessions[movedCount] = session;
+            movedFrom[movedCount] = position[session];
+            movedCount++;
+        }
+
+        private void setCell(int session, int cell, boolean occupy) {
+            if (cell < 0) {
+                position[session] = -1;
+                return;
+            }
+            cells[cell] = occupy ? session : -1;
+            courseTaken[sessionCourse[session] * days * slots + cell / rooms] = occupy;
+            position[session] = occupy ? cell : -1;
+            if (occupy) {
+                unplacedCount--;
+                cost -= UNPLACED_WEIGHT;
+            } else {
+                unplacedCount++;
+                cost += UNPLACED_WEIGHT;
+            }
+        }
+
+        private void rescore(int session, int cell) {
+            int day = cell / rooms / slots;
+            int roomDay = day * rooms + cell % rooms;
+            int courseDay = sessionCourse[session] * days + day;
+            if (!contains(touchedRoomDays, touchedRoomDayCount, roomDay)) {
+                touchedRoomDays[touchedRoomDayCount] = roomDay;
+                oldRoomDayCost[touchedRoomDayCount++] = roomDayCost[roomDay];
+            }
+            if (!contains(touchedCourseDays, touchedCourseDayCount, courseDay)) {
+                touchedCourseDays[touchedCourseDayCount] = courseDay;
+                oldCourseDayCost[touchedCourseDayCount++] = courseDayCost[courseDay];
+            }
+            long roomCost = scoreRoomDay(day, cell % rooms, null);
+            cost += roomCost - roomDayCost[roomDay];
+            roomDayCost[roomDay] = roomCost;
+            long courseCost = scoreCourseDay(sessionCourse[session], day, null);
+            cost += courseCost - courseDayCost[courseDay];
+            courseDayCost[courseDay] = courseCost;
+        }
+
+        private static boolean contains(int[] values, int count, int value) {
+            for (int i = 0; i < count; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Cost of one room on one day; tally, if given, collects {open, gaps, occupied, usable}.
+        // Blocked slots between two sessions are not gaps.
+        private long scoreRoomDay(int day, int room, int[] tally) {
+            int used = 0;
+            int usable = 0;
+            int gaps = 0;
+            int idle = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int cell = (day * slots + slot) * rooms + room;
+                if (cells[cell] >= 0) {
+                    if (used > 0) {
+                        gaps += idle;
+                    }
+                    idle = 0;
+                    used++;
+                } else if (!p.blocked[cell]) {
+                    idle++;
+                }
+                if (!p.blocked[cell]) {
+                    usable++;
+                }
+            }
+            if (used == 0) {
+                return 0;
+            }
+            if (tally != null) {
+                tally[0]++;
+                tally[1] += gaps;
+                tally[2] += used;
+                tally[3] += usable;
+            }
+            return ROOM_OPEN_WEIGHT + (long) ROOM_GAP_WEIGHT * gaps;
+        }
+
+        // Cost of one course on one day; tally, if given, collects {gaps, sessions over the spread}.
+        // Slots the course cannot use (busy elsewhere, or blocked in every room) are not gaps.
+        private long scoreCourseDay(int course, int day, int[] tally) {
+            int base = (course * days + day) * slots;
+            int used = 0;
+            int gaps = 0;
+            int idle = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                if (courseTaken[base + slot]) {
+                    if (used > 0) {
+                        gaps += idle;
+                    }
+                    idle = 0;
+                    used++;
+                } else if (!p.courseBusy[base + slot] && slotOpen[day * slots + slot]) {
+                    idle++;
+                }
+            }
+            if (used == 0) {
+                return 0;
+            }
+            int excess = Math.max(0, used - maxPerDay[course]);
+            if (tally != null) {
+                tally[0] += gaps;
+                tally[1] += excess;
+            }
+            return (long) COURSE_GAP_WEIGHT * gaps + (long) SPREAD_WEIGHT * excess;
+        }
+
+        private void remember(long start, AtomicLong sharedBest, AtomicLong firstComplete) {
+            bestCost = cost;
+            bestPosition = position.clone();
+            sharedBest.accumulateAndGet(cost, Math::min);
+            if (unplacedCount == 0) {
+                firstComplete.compareAndSet(-1, System.nanoTime() - start);
+            }
+        }
+
+        Result result(int workers, long iterations, long elapsedNanos, long firstCompleteNanos) {
+            // Replay the best assignment so the tallies describe it rather than the last state
+            Arrays.fill(cells, -1);
+            Arrays.fill(courseTaken, false);
+            List<ScheduleRow> rows = new ArrayList<>();
+            Map<String, Integer> unplaced = new LinkedHashMap<>();
+            for (int session = 0; session < bestPosition.length; session++) {
+                int cell = bestPosition[session];
+                String course = p.courses.get(sessionCourse[session]).course;
+                if (cell < 0) {
+                    unplaced.merge(course, 1, Integer::sum);
+                    continue;
+                }
+                cells[cell] = session;
+                courseTaken[sessionCourse[session] * days * slots + cell / rooms] = true;
+                int slot = cell / rooms % slots;
+                rows.add(new ScheduleRow(0, course, p.days.get(cell / rooms / slots),
+                        p.time(slot), p.time(slot + 1), p.rooms.get(cell % rooms)));
+            }
+            int[] roomTally = new int[4];
+            for (int day = 0; day < days; day++) {
+                for (int room = 0; room < rooms; room++) {
+                    scoreRoomDay(day, room, roomTally);
+                }
+            }
+            int[] courseTally = new int[2];
+            for (int course = 0; course < p.courses.size(); course++) {
+                for (int day = 0; day < days; day++) {
+                    scoreCourseDay(course, day, courseTally);
+                }
+            }
+            double utilization = roomTally[3] == 0 ? 0 : roomTally[2] / (double) roomTally[3];
+            return new Result(rows, bestCost, unplaced, utilization, roomTally[1], courseTally[0], courseTally[1],
+                    workers, iterations, elapsedNanos, firstCompleteNanos);
+        }
+    }
+}
@@ -2,23 +2,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 
 
@@ -29,10 +25,26 @@ public class User extends JFrame {
     private CardLayout cardLayout;
     private Map<String, JPanel> contentPanels;
     private Random random;
+    private final BackgroundTasks tasks = new BackgroundTasks(this::showDatabaseError);
     private static final Color SIDEBAR_BG = new Color(45, 45, 45);
     private static final Color SIDEBAR_TEXT = Color.WHITE;
     private static final Color CONTENT_BG = new Color(245, 245, 245);
     private static final Color CONTENT_TEXT = new Color(30, 30, 30);
+    private static final int NOTIFICATION_PAGE_SIZE = 50;
+    // Most full-text matches shown for one search, best first
+    private static final int SEARCH_LIMIT = Integer.getInteger("lms.search.limit", 200);
+    // Resource downloads running at once; the rest wait their turn
+    private static final int DOWNLOAD_CONCURRENCY = Integer.getInteger("lms.download.concurrency", 2);
+    private final DownloadManager downloads = new DownloadManager(DOWNLOAD_CONCURRENCY);
+    // One row per download, kept across visits to the Courses card; rows are never removed,
+    // so a row number always names the same entry of downloadList
+    private final List<DownloadManager.Download> downloadList = new ArrayList<>();
+    private final DefaultTableModel downloadModel = new DefaultTableModel(new String[]{"File", "Progress", "Status"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
 
     public User() {
         random = new Random();
@@ -73,138 +85,231 @@ public class User extends JFrame {
         coursesPanel.removeAll();
         coursesPanel.setLayout(new BorderLayout());
 
-        // Create filter panel
+        // Create filter panel; the table follows the filters as they change
         JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         JLabel courseLabel = new JLabel("Course:");
         JComboBox<String> courseFilter = new JComboBox<>();
         JLabel chapterLabel = new JLabel("Chapter:");
         JComboBox<String> chapterFilter = new JComboBox<>();
-        JButton applyFilter = new JButton("Apply Filter");
+        JTextField searchField = new JTextField(15);
+        searchField.setToolTipText("Filter lessons as you type");
 
         filterPanel.add(courseLabel);
         filterPanel.add(courseFilter);
         filterPanel.add(chapterLabel);
         filterPanel.add(chapterFilter);
-        filterPanel.add(applyFilter);
+        filterPanel.add(new JLabel("Filter:"));
+        filterPanel.add(searchField);
 
         coursesPanel.add(filterPanel, BorderLayout.NORTH);
 
         // Create a table to display course content
         String[] columnNames = {"Course", "Chapter", "Lesson", "Resource Type", "File Path"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        FilteredTableModel<CourseRow> model = new FilteredTableModel<>(columnNames, (course, column) -> {
+            switch (column) {
+                case 0: return course.getName();
+                case 1: return course.getChapter();
+                case 2: return course.getLesson();
+                case 3: return course.getResourceType();
+                default: return course.getFilePath(); // Keep the file path in the model
             }
-        };
+        });
         JTable table = new JTable(model);
         table.removeColumn(table.getColumnModel().getColumn(4)); // Hide the File Path column
         JScrollPane scrollPane = new JScrollPane(table);
 
-        // Fetch course data from the database and populate the table
-        ResultSet courses = Database.getAllCourses();
-        if (courses != null) {
-            try {
-                Set<String> uniqueCourses = new HashSet<>();
-                Set<String> uniqueChapters = new HashSet<>();
-                
-                while (courses.next()) {
-                    String course = courses.getString("name");
-                    String chapter = courses.getString("chapter");
-                    
-                    model.addRow(new Object[]{
-                        course,
-                        chapter,
-                        courses.getString("lesson"),
-                        courses.getString("resource_type"),
-                        courses.getString("file_path") // Keep the file path in the model
-                    });
-                    
-                    uniqueCourses.add(course);
-                    uniqueChapters.add(chapter);
-                }
-                
-                // Populate filter comboboxes
-                courseFilter.addItem("All Courses");
-                for (String course : uniqueCourses) {
-                    courseFilter.addItem(course);
-                }
-                
-                chapterFilter.addItem("All Chapters");
-                for (String chapter : uniqueChapters) {
-                    chapterFilter.addItem(chapter);
-                }
-            } catch (SQLException e) {
-                System.out.println("Error reading course data: " + e.getMessage());
+        // Course data comes from the shared catalog cache, loaded in the background on a miss.
+        // The catalog's text index is built there too, so filtering never waits on the EDT.
+        JLabel loadingLabel = new JLabel("Loading courses...");
+        filterPanel.add(loadingLabel);
+        CourseCatalog.Snapshot[] catalog = new CourseCatalog.Snapshot[1];
+        NGramIndex.Session[] session = new NGramIndex.Session[1];
+
+        // Text, course and chapter filters run together off the EDT; a newer change replaces an older one
+        Runnable refilter = () -> {
+            CourseCatalog.Snapshot snapshot = catalog[0];
+            if (snapshot == null) {
+                return;
             }
-        }
+            NGramIndex.Session search = session[0];
+            String text = searchField.getText();
+            String selectedCourse = (String) courseFilter.getSelectedItem();
+            String selectedChapter = (String) chapterFilter.getSelectedItem();
+            String course = selectedCourse == null || selectedCourse.equals("All Courses") ? null : selectedCourse;
+            String chapter = selectedChapter == null || selectedChapter.equals("All Chapters") ? null : selectedChapter;
+            tasks.load("Courses:filter", () -> filterCourses(snapshot, search, text, course, chapter), model::setVisible);
+        };
+
+        tasks.load("Courses", () -> {
+            CourseCatalog.Snapshot snapshot = Database.getCourseCatalog();
+            if (snapshot == null) {
+                throw new SQLException("Could not load courses");
+            }
+            snapshot.getTextIndex();
+            return snapshot;
+        }, snapshot -> {
+            model.setRows(snapshot.getCourses());
+
+            // Populate filter comboboxes from the prebuilt option lists
+            courseFilter.addItem("All Courses");
+            for (String course : snapshot.getCourseNames()) {
+                courseFilter.addItem(course);
+            }
+            setChapterItems(chapterFilter, snapshot.getChapterNames());
+            catalog[0] = snapshot;
+            session[0] = new NGramIndex.Session(snapshot.getTextIndex());
+            filterPanel.remove(loadingLabel);
+            filterPanel.revalidate();
+            if (!searchField.getText().isEmpty()) {
+                refilter.run();
+            }
+        });
+
+        // Only offer the chapters of the selected course
+        courseFilter.addActionListener(e -> {
+            if (catalog[0] == null) {
+                return;
+            }
+            String selectedCourse = (String) courseFilter.getSelectedItem();
+            setChapterItems(chapterFilter, selectedCourse == null || selectedCourse.equals("All Courses")
+                ? catalog[0].getChapterNames()
+                : catalog[0].getChapterNames(selectedCourse));
+            refilter.run();
+        });
+        chapterFilter.addActionListener(e -> refilter.run());
+        SearchDebouncer.attach(searchField, text -> refilter.run());
 
         coursesPanel.add(scrollPane, BorderLayout.CENTER);
 
-        // Add a download button
+        // Downloads run in the background and show their progress in the table below the buttons
         JButton downloadButton = new JButton("Download Selected Resource");
-        downloadButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                int selectedRow = table.getSelectedRow();
-                if (selectedRow >= 0) {
-                    String filePath = (String) model.getValueAt(selectedRow, 4); // Get file path from hidden column
-                    String fileName = new File(filePath).getName();
-
-                    JFileChooser fileChooser = new JFileChooser();
-                    fileChooser.setSelectedFile(new File(fileName));
-                    int userSelection = fileChooser.showSaveDialog(User.this);
-
-                    if (userSelection == JFileChooser.APPROVE_OPTION) {
-                        File fileToSave = fileChooser.getSelectedFile();
-                        try {
-                            Path source = Paths.get(filePath);
-                            Path destination = fileToSave.toPath();
-                            Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
-                            JOptionPane.showMessageDialog(User.this,
-                                "File downloaded successfully: " + destination,
-                                "Download Complete", JOptionPane.INFORMATION_MESSAGE);
-                        } catch (IOException ex) {
-                            JOptionPane.showMessageDialog(User.this,
-                                "Error downloading file: " + ex.getMessage(),
-                                "Download Error", JOptionPane.ERROR_MESSAGE);
-                        }
+        downloadButton.addActionListener(e -> {
+            int selectedRow = table.getSelectedRow();
+            if (selectedRow >= 0) {
+                CourseRow course = model.getRow(selectedRow);
+                String fileName = new File(course.getFilePath()).getName();
+
+                JFileChooser fileChooser = new JFileChooser();
+                fileChooser.setSelectedFile(new File(fileName));
+                int userSelection = fileChooser.showSaveDialog(User.this);
+
+                if (userSelection == JFileChooser.APPROVE_OPTION) {
+                    Path source = Database.resolveResource(course);
+                    if (source == null) {
+                        JOptionPane.showMessageDialog(User.this,
+                            "Error downloading file: the file for this resource is missing",
+                            "Download Error", JOptionPane.ERROR_MESSAGE);
+                        return;
                     }
-                } else {
-                    JOptionPane.showMessageDialog(User.this,
-                        "Please select a resource to download",
-                        "No Selection", JOptionPane.WARNING_MESSAGE);
+                    startDownload(source, fileChooser.getSelectedFile().toPath(), course.getContentHash());
                 }
+            } else {
+                JOptionPane.showMessageDialog(User.this,
+                    "Please select a resource to download",
+                    "No Selection", JOptionPane.WARNING_MESSAGE);
             }
         });
 
-        coursesPanel.add(downloadButton, BorderLayout.SOUTH);
+        JTable downloadTable = new JTable(downloadModel);
+        JScrollPane downloadScroll = new JScrollPane(downloadTable);
+        downloadScroll.setPreferredSize(new Dimension(0, 110));
 
-        // Add filter functionality
-        applyFilter.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                String selectedCourse = (String) courseFilter.getSelectedItem();
-                String selectedChapter = (String) chapterFilter.getSelectedItem();
-                
-                TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(model);
-                table.setRowSorter(sorter);
-                
-                RowFilter<DefaultTableModel, Object> courseFilter = RowFilter.regexFilter(selectedCourse.equals("All Courses") ? "." : selectedCourse, 0);
-                RowFilter<DefaultTableModel, Object> chapterFilter = RowFilter.regexFilter(selectedChapter.equals("All Chapters") ? "." : selectedChapter, 1);
-                
-                List<RowFilter<DefaultTableModel, Object>> filters = new ArrayList<>();
-                filters.add(courseFilter);
-                filters.add(chapterFilter);
-                
-                sorter.setRowFilter(RowFilter.andFilter(filters));
+        JButton cancelButton = new JButton("Cancel Download");
+        cancelButton.addActionListener(e -> {
+            int selectedRow = downloadTable.getSelectedRow();
+            if (selectedRow >= 0) {
+                downloadList.get(selectedRow).cancel();
             }
         });
+        JButton resumeButton = new JButton("Resume Download");
+        resumeButton.addActionListener(e -> {
+            int selectedRow = downloadTable.getSelectedRow();
+            if (selectedRow < 0) {
+                return;
+            }
+            DownloadManager.Download download = downloadList.get(selectedRow);
+            DownloadManager.State state = download.getProgress().state;
+            if (state == DownloadManager.State.CANCELLED || state == DownloadManager.State.FAILED) {
+                downloadList.set(selectedRow, download.resume());
+                downloadModel.setValueAt("Queued", selectedRow, 2);
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel.add(downloadButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(resumeButton);
+        JPanel downloadPanel = new JPanel(new BorderLayout());
+        downloadPanel.add(buttonPanel, BorderLayout.NORTH);
+        downloadPanel.add(downloadScroll, BorderLayout.CENTER);
+        coursesPanel.add(downloadPanel, BorderLayout.SOUTH);
 
         coursesPanel.revalidate();
         coursesPanel.repaint();
     }
 
+    private void startDownload(Path source, Path destination, String contentHash) {
+        for (DownloadManager.Download download : downloadList) {
+            DownloadManager.State state = download.getProgress().state;
+            if (download.getDestination().equals(destination)
+                    && (state == DownloadManager.State.QUEUED || state == DownloadManager.State.RUNNING)) {
+                JOptionPane.showMessageDialog(this, "Already downloading to " + destination,
+                    "Download in Progress", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        }
+        int row = downloadModel.getRowCount();
+        downloadModel.addRow(new Object[]{destination.getFileName().toString(), "", "Queued"});
+        downloadList.add(downloads.download(source, destination, contentHash, downloadListener(row)));
+    }
+
+    // Progress arrives on a download thread once per chunk; at most one table update is
+    // queued on the EDT at a time and it shows whatever the latest progress is by then
+    private Consumer<DownloadManager.Progress> downloadListener(int row) {
+        AtomicBoolean pending = new AtomicBoolean();
+        return progress -> {
+            if (pending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    pending.set(false);
+                    DownloadManager.Progress latest = downloadList.get(row).getProgress();
+                    downloadModel.setValueAt(String.format("%.1f / %.1f MB",
+                        latest.transferred / 1e6, latest.total / 1e6), row, 1);
+                    downloadModel.setValueAt(latest.toString(), row, 2);
+                });
+            }
+        };
+    }
+
+    // Row numbers of the snapshot's courses matching the text and the selected course and chapter (null for any)
+    private static int[] filterCourses(CourseCatalog.Snapshot snapshot, NGramIndex.Session search,
+                                       String text, String course, String chapter) {
+        int[] matches = search.search(text);
+        if (course == null && chapter == null) {
+            return matches;
+        }
+        List<CourseRow> courses = snapshot.getCourses();
+        int count = matches == null ? courses.size() : matches.length;
+        int[] kept = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int row = matches == null ? i : matches[i];
+            CourseRow c = courses.get(row);
+            if ((course == null || course.equals(c.getName() == null ? "" : c.getName()))
+                    && (chapter == null || chapter.equals(c.getChapter() == null ? "" : c.getChapter()))) {
+                kept[found++] = row;
+            }
+        }
+        return Arrays.copyOf(kept, found);
+    }
+
+    private void setChapterItems(JComboBox<String> chapterFilter, List<String> chapters) {
+        chapterFilter.removeAllItems();
+        chapterFilter.addItem("All Chapters");
+        for (String chapter : chapters) {
+            chapterFilter.addItem(chapter);
+        }
+    }
+
     private void showScheduleContent() {
         JPanel schedulePanel = contentPanels.get("Schedule");
         schedulePanel.removeAll();
@@ -215,24 +320,29 @@ public class User extends JFrame {
         JTable table = new JTable(model);
         JScrollPane scrollPane = new JScrollPane(table);
     
-        ResultSet schedules = Database.getAllSchedules();
-        if (schedules != null) {
-            try {
-                while (schedules.next()) {
-                    model.addRow(new Object[]{
-                        schedules.getString("course"),
-                        schedules.getString("day"),
-                        schedules.getString("start_time"),
-                        schedules.getString("end_time"),
-                        schedules.getString("room")
-                    });
-                }
-            } catch (SQLException e) {
-                System.out.println("Error reading schedule data: " + e.getMessage());
+        JLabel loadingLabel = new JLabel("Loading schedule...", SwingConstants.CENTER);
+        tasks.<ScheduleRow>stream("Schedule", consumer -> {
+            if (!Database.forEachSchedule(consumer)) {
+                throw new SQLException("Could not load the schedule");
             }
-        }
+        }, chunk -> {
+            for (ScheduleRow schedule : chunk) {
+                model.addRow(new Object[]{
+                    schedule.getCourse(),
+                    schedule.getDay(),
+                    schedule.getStartTime(),
+                    schedule.getEndTime(),
+                    schedule.getRoom()
+                });
+            }
+        }, () -> {
+            schedulePanel.remove(loadingLabel);
+            schedulePanel.revalidate();
+            schedulePanel.repaint();
+        });
     
         schedulePanel.add(scrollPane, BorderLayout.CENTER);
+        schedulePanel.add(loadingLabel, BorderLayout.NORTH);
     
         schedulePanel.revalidate();
         schedulePanel.repaint();
@@ -244,7 +354,7 @@ public class User extends JFrame {
         gradesPanel.setLayout(new BorderLayout());
     
         // Create a table to display grades
-        String[] columnNames = {"Course", "Grade"};
+        String[] columnNames = {"Course", "Grade", "Points"};
         DefaultTableModel model = new DefaultTableModel(columnNames, 0);
         JTable table = new JTable(model);
         JScrollPane scrollPane = new JScrollPane(table);
@@ -257,24 +367,26 @@ public class User extends JFrame {
             noUserLabel.setFont(new Font("Arial", Font.BOLD, 16));
             gradesPanel.add(noUserLabel, BorderLayout.CENTER);
         } else {
-            // Fetch grades data from the database and populate the table
-            ResultSet grades = Database.getGradesForCurrentUser();
-            if (grades != null) {
-                try {
-                    while (grades.next()) {
-                        String courseId = grades.getString("course_id");
-                        String grade = grades.getString("grade");
-                        
-                        // You might want to fetch the course name based on the course_id
-                        // For now, we'll just display the course_id
-                        model.addRow(new Object[]{courseId, grade});
-                    }
-                } catch (SQLException e) {
-                    System.out.println("Error reading grades data: " + e.getMessage());
+            // Course names and the summary arrive with the grades in a single query
+            JLabel summaryLabel = new JLabel("Loading grades...", SwingConstants.CENTER);
+            tasks.load("Grades", () -> {
+                GradeReport report = Database.getGradeReportForCurrentUser();
+                if (report == null) {
+                    throw new SQLException("Could not load grades");
                 }
-            }
+                return report;
+            }, report -> {
+                for (GradeReport.Line line : report.getLines()) {
+                    String course = line.getCourseName() != null ? line.getCourseName() : "Course " + line.getCourseId();
+                    model.addRow(new Object[]{course, line.getGrade(), line.getPoints()});
+                }
+                summaryLabel.setText(report.getGraded() == 0 ? "No grades yet."
+                    : String.format("Courses: %d    Average: %.1f    GPA: %.2f",
+                        report.getGraded(), report.getAverage(), report.getGpa()));
+            });
     
             gradesPanel.add(scrollPane, BorderLayout.CENTER);
+            gradesPanel.add(summaryLabel, BorderLayout.SOUTH);
         }
     
         // Add a label at the top
@@ -295,29 +407,118 @@ public class User extends JFrame {
         DefaultTableModel model = new DefaultTableModel(columnNames, 0);
         JTable table = new JTable(model);
         JScrollPane scrollPane = new JScrollPane(table);
-    
-        ResultSet notifications = Database.getAllAnnouncements();
-        if (notifications != null) {
-            try {
-                while (notifications.next()) {
+
+        // Keyset pagination: only the current page's rows are held, plus the key each visited page starts after
+        JButton newerButton = new JButton("Newer");
+        JButton olderButton = new JButton("Older");
+        JLabel pageLabel = new JLabel();
+        List<AnnouncementRow> pageStarts = new ArrayList<>();
+        pageStarts.add(null);
+        AnnouncementRow[] lastRow = new AnnouncementRow[1];
+
+        Runnable loadPage = () -> {
+            int pageIndex = pageStarts.size() - 1;
+            AnnouncementRow after = pageStarts.get(pageIndex);
+            newerButton.setEnabled(false);
+            olderButton.setEnabled(false);
+            pageLabel.setText("Loading...");
+            tasks.load("Notifications", () -> after == null
+                ? Database.getAnnouncementsPage(null, 0, NOTIFICATION_PAGE_SIZE)
+                : Database.getAnnouncementsPage(after.getDate(), after.getId(), NOTIFICATION_PAGE_SIZE), page -> {
+                model.setRowCount(0);
+                for (AnnouncementRow notification : page.getRows()) {
                     model.addRow(new Object[]{
-                        notifications.getString("date"),
-                        notifications.getString("title"),
-                        notifications.getString("content")
+                        notification.getDate(),
+                        notification.getTitle(),
+                        notification.getContent()
                     });
                 }
-            } catch (SQLException e) {
-                System.out.println("Error reading notification data: " + e.getMessage());
+
+                newerButton.setEnabled(pageIndex > 0);
+                olderButton.setEnabled(page.hasMore());
+                lastRow[0] = page.getLast();
+                if (page.isEmpty()) {
+                    pageLabel.setText("No notifications");
+                    return;
+                }
+                long first = (long) pageIndex * NOTIFICATION_PAGE_SIZE + 1;
+                long last = first + page.getRows().size() - 1;
+                tasks.load("Notifications:count", Database::countAnnouncements,
+                    total -> pageLabel.setText(first + "-" + last + " of " + total));
+            });
+        };
+
+        newerButton.addActionListener(e -> {
+            pageStarts.remove(pageStarts.size() - 1);
+            loadPage.run();
+        });
+        olderButton.addActionListener(e -> {
+            pageStarts.add(new AnnouncementRow(lastRow[0].getId(), null, null, lastRow[0].getDate()));
+            loadPage.run();
+        });
+
+        JPanel pagerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        pagerPanel.add(pageLabel);
+        pagerPanel.add(newerButton);
+        pagerPanel.add(olderButton);
+
+        // Ranked full-text search replaces the pages until the search is cleared. It runs as
+        // the user types and shares the page loads' group, so whichever was started last wins.
+        JTextField searchField = new JTextField(20);
+        searchField.setToolTipText("Search notifications");
+        JButton searchButton = new JButton("Search");
+        ActionListener search = e -> {
+            String text = searchField.getText().trim();
+            if (text.isEmpty()) {
+                pageStarts.clear();
+                pageStarts.add(null);
+                loadPage.run();
+                return;
             }
-        }
+            newerButton.setEnabled(false);
+            olderButton.setEnabled(false);
+            pageLabel.setText("Searching...");
+            tasks.load("Notifications", () -> {
+                List<AnnouncementRow> rows = Database.searchAnnouncements(text, SEARCH_LIMIT);
+                if (rows == null) {
+                    throw new SQLException("Could not search notifications");
+                }
+                return rows;
+            }, rows -> {
+                model.setRowCount(0);
+                for (AnnouncementRow notification : rows) {
+                    model.addRow(new Object[]{
+                        notification.getDate(),
+                        notification.getTitle(),
+                        notification.getContent()
+                    });
+                }
+                pageLabel.setText(rows.isEmpty() ? "No matches"
+                    : rows.size() + (rows.size() == SEARCH_LIMIT ? " best matches" : " matches"));
+            });
+        };
+        searchButton.addActionListener(search);
+        SearchDebouncer.attach(searchField, text -> search.actionPerformed(null));
+
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(searchField);
+        searchPanel.add(searchButton);
+
+        loadPage.run();
     
+        notificationPanel.add(searchPanel, BorderLayout.NORTH);
         notificationPanel.add(scrollPane, BorderLayout.CENTER);
+        notificationPanel.add(pagerPanel, BorderLayout.SOUTH);
     
         notificationPanel.revalidate();
         notificationPanel.repaint();
     }
     
     
+    private void showDatabaseError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
     private void initializeContentPanels() {
         contentPanels = new HashMap<>();
         String[] sections = {"Dashboard", "Courses", "Schedule", "Grades", "Notifications", "Logout"};
@@ -373,6 +574,8 @@ public class User extends JFrame {
         button.setBackground(SIDEBAR_BG);
 
         button.addActionListener(e -> {
+            // Results for the card being left are no longer wanted
+            tasks.cancelAll();
             cardLayout.show(content, name);
             action.run();
         });
@@ -405,7 +608,8 @@ public class User extends JFrame {
             "Are you sure you want to logout?", "Logout Confirmation",
             JOptionPane.YES_NO_OPTION);
         if (result == JOptionPane.YES_OPTION) {
-            // Perform logout actions here
+            // Perform logout actions here; unfinished downloads keep their partial files
+            downloads.shutdown();
             this.dispose(); // Close the current window
             new Login().setVisible(true); // Open the login window
         }
@@ -0,0 +1,160 @@
+import javax.swing.SwingWorker;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Streams a "username,password,user_type" CSV into the users table on a background thread,
+// one chunk per transaction. Existing usernames are skipped, so re-running an interrupted
+// import simply skips the accounts that were already created.
+public class UserImportWorker extends SwingWorker<UserImportWorker.Progress, UserImportWorker.Progress> {
+    private static final int CHUNK_SIZE = Integer.getInteger("lms.import.userChunkSize", 10_000);
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final Path file;
+    private final Consumer<Progress> onProgress;
+    private final Consumer<Progress> onDone;
+
+    private final long startNanos = System.nanoTime();
+    private long linesRead;
+    private long created;
+    private long skipped;
+    private long failed;
+    private final List<String> errors = new ArrayList<>();
+
+    public UserImportWorker(Path file, Consumer<Progress> onProgress, Consumer<Progress> onDone) {
+        this.file = file;
+        this.onProgress = onProgress;
+        this.onDone = onDone;
+    }
+
+    @Override
+    protected Progress doInBackground() throws Exception {
+        List<UserRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        // File line of each row in the chunk, for error messages
+        long[] lines = new long[CHUNK_SIZE];
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (isCancelled()) {
+                    return snapshot("Import cancelled", false);
+                }
+                linesRead++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = GradeImportWorker.splitCsv(line);
+                // Skip a header row such as "username,password,user_type"
+                if (linesRead == 1 && fields.get(0).equalsIgnoreCase("username")) {
+                    continue;
+                }
+                if (fields.size() != 3) {
+                    fail(linesRead, "expected 3 fields but found " + fields.size());
+                    continue;
+                }
+                lines[chunk.size()] = linesRead;
+                chunk.add(new UserRow(0, fields.get(0), fields.get(1), fields.get(2)));
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(chunk, lines);
+                }
+            }
+        }
+        flush(chunk, lines);
+        return snapshot(null, true);
+    }
+
+    private void flush(List<UserRow> chunk, long[] lines) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        ProvisionResult result = Database.provisionUsers(chunk);
+        created += result.getCreated();
+        skipped += result.getSkipped();
+        failed += result.getFailed() - countRowErrors(result);
+        for (BatchResult.RowError error : result.getErrors()) {
+            if (error.getIndex() >= 0) {
+                fail(lines[error.getIndex()], error.getMessage());
+            } else if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("lines " + lines[0] + "-" + lines[chunk.size() - 1] + ": " + error.getMessage());
+            }
+        }
+        chunk.clear();
+        publish(snapshot(null, false));
+    }
+
+    private static int countRowErrors(ProvisionResult result) {
+        int count = 0;
+        for (BatchResult.RowError error : result.getErrors()) {
+            if (error.getIndex() >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void fail(long line, String problem) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("line " + line + ": " + problem);
+        }
+    }
+
+    private Progress snapshot(String failure, boolean finished) {
+        return new Progress(linesRead, created, skipped, failed, System.nanoTime() - startNanos,
+                new ArrayList<>(errors), failure, finished);
+    }
+
+    @Override
+    protected void process(List<Progress> chunks) {
+        onProgress.accept(chunks.get(chunks.size() - 1));
+    }
+
+    @Override
+    protected void done() {
+        Progress result;
+        try {
+            result = isCancelled() ? snapshot("Import cancelled", false) : get();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            result = snapshot("Import failed: " + cause.getMessage(), false);
+        }
+        onDone.accept(result);
+    }
+
+    public static class Progress {
+        public final long linesRead;
+        public final long created;
+        public final long skipped;
+        public final long failed;
+        public final long elapsedNanos;
+        public final List<String> errors;
+        public final String failure;
+        public final boolean finished;
+
+        Progress(long linesRead, long created, long skipped, long failed, long elapsedNanos,
+                 List<String> errors, String failure, boolean finished) {
+            this.linesRead = linesRead;
+            this.created = created;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = Collections.unmodifiableList(errors);
+            this.failure = failure;
+            this.finished = finished;
+        }
+
+        public double usersPerSecond() {
+            return elapsedNanos == 0 ? 0 : (created + skipped) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d created, %,d skipped, %,d failed, %,.0f users/s",
+                    created, skipped, failed, usersPerSecond());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class UserRow {
+    private final int id;
+    private final String username;
+    private final String password;
+    private final String userType;
+
+    public UserRow(int id, String username, String password, String userType) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.userType = userType;
+    }
+
+    static UserRow from(ResultSet rs) throws SQLException {
+        return new UserRow(
+            rs.getInt("id"),
+            rs.getString("username"),
+            rs.getString("password"),
+            rs.getString("user_type"));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getUserType() {
+        return userType;
+    }
+}